@@ -0,0 +1,47 @@
+package searchengine.benchmark;
+
+import searchengine.services.IndexingService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// Неизменные тексты для бенчмарков (ресурсы corpus/*): результаты разных сборок сравнимы между собой
+final class Corpus {
+
+    static final String RUSSIAN = "corpus/ru.txt";
+    static final String ENGLISH = "corpus/en.txt";
+    static final String QUERIES = "corpus/queries.txt";
+
+    private Corpus() {
+    }
+
+    static String text(String resource) {
+        try (InputStream in = Corpus.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Нет ресурса " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Текст на языке lang: ru или en
+    static String byLanguage(String lang) {
+        return text("en".equals(lang) ? ENGLISH : RUSSIAN);
+    }
+
+    // Сервис индексации только для разбора текста: лемматизации нужен лишь конвейер CoreNLP,
+    // репозитории и остальные сервисы не используются. После замеров вызывается shutdown()
+    static IndexingService analyzer() {
+        return new IndexingService(null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    static List<String> lines(String resource) {
+        return Arrays.stream(text(resource).split("\n")).map(String::trim).filter(line -> !line.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,162 @@
+package searchengine.benchmark;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import searchengine.Application;
+import searchengine.dto.statistics.DetailedStatisticsItem;
+import searchengine.dto.statistics.StatisticsData;
+import searchengine.services.IndexingService;
+import searchengine.services.SiteStatisticsService;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Замер обхода без сети: приложение со встроенной базой H2 индексирует локальный синтетический сайт
+// (SyntheticSite) без пауз между страницами. Выводятся страницы в секунду, p50/p99 этапов обработки
+// страницы по таймерам crawl.stage и пиковый объём кучи.
+// Параметры — пары ключ=значение: pages, fan-out, page-words, latency-ms, error-rate, seed, timeout-minutes
+public class CrawlBenchmark {
+
+    private static final long POLL_INTERVAL_MS = 200;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = parse(args);
+        SyntheticSite.Options options = new SyntheticSite.Options(
+                Integer.parseInt(params.getOrDefault("pages", "1000")),
+                Integer.parseInt(params.getOrDefault("fan-out", "8")),
+                Integer.parseInt(params.getOrDefault("page-words", "400")),
+                Integer.parseInt(params.getOrDefault("latency-ms", "0")),
+                Double.parseDouble(params.getOrDefault("error-rate", "0.01")),
+                Long.parseLong(params.getOrDefault("seed", "1")));
+        long timeoutNanos = TimeUnit.MINUTES.toNanos(Long.parseLong(params.getOrDefault("timeout-minutes", "60")));
+
+        Path searchIndex = Files.createTempDirectory("crawl-benchmark-index");
+        int status = 0;
+        try (SyntheticSite site = new SyntheticSite(options);
+             ConfigurableApplicationContext context = start(site.url(), searchIndex)) {
+            IndexingService indexingService = context.getBean(IndexingService.class);
+            SiteStatisticsService statistics = context.getBean(SiteStatisticsService.class);
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+
+            System.gc();
+            List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .toList();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+            long start = System.nanoTime();
+            indexingService.startIndexing();
+            boolean finished = true;
+            while (statistics.getSnapshot().getStatistics().getTotal().isIndexing()) {
+                if (System.nanoTime() - start > timeoutNanos) {
+                    finished = false;
+                    indexingService.stopIndexing();
+                    break;
+                }
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            // Сумма пиков отдельных пулов — оценка сверху: пулы достигают пика не одновременно
+            long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+            report(options, site, statistics.getSnapshot().getStatistics(), registry, seconds, peakHeap);
+            if (!finished) {
+                System.out.println("Обход остановлен по таймауту, результаты неполные");
+                status = 1;
+            }
+        } finally {
+            deleteRecursively(searchIndex);
+        }
+        System.exit(status);
+    }
+
+    // Настройки поверх application.yaml: база в памяти, один сайт, без пауз и без веб-сервера
+    private static ConfigurableApplicationContext start(String siteUrl, Path searchIndex) {
+        return SpringApplication.run(Application.class,
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:h2:mem:crawl;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--indexing-settings.sites[0].url=" + siteUrl,
+                "--indexing-settings.sites[0].name=Synthetic",
+                "--crawl.min-delay-ms=0",
+                "--crawl.max-delay-ms=0",
+                "--search-index.path=" + searchIndex,
+                "--management.metrics.distribution.percentiles.crawl.stage=0.5,0.99");
+    }
+
+    private static void report(SyntheticSite.Options options, SyntheticSite site, StatisticsData statistics,
+                               MeterRegistry registry, double seconds, long peakHeap) {
+        DetailedStatisticsItem item = statistics.getDetailed().get(0);
+        double errors = registry.find("crawl.errors").counters().stream().mapToDouble(Counter::count).sum();
+        System.out.println();
+        System.out.printf("Сайт: %d страниц (%d с ошибкой), ветвление %d, %d слов на странице, ответ %d мс%n",
+                options.pages(), site.errorPages(), options.fanOut(), options.pageWords(), options.latencyMs());
+        System.out.printf("Обход: %s, %d страниц, %d лемм, %.0f ошибок загрузки за %.1f с — %.1f стр/с%n",
+                item.getStatus(), item.getPages(), item.getLemmas(), errors, seconds, item.getPages() / seconds);
+
+        System.out.printf("%-14s %10s %10s %10s %12s%n", "этап", "страниц", "p50, мс", "p99, мс", "среднее, мс");
+        Map<String, Timer> stages = new HashMap<>();
+        for (Timer timer : registry.find("crawl.stage").timers()) {
+            stages.put(timer.getId().getTag("stage"), timer);
+        }
+        stages.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            HistogramSnapshot snapshot = entry.getValue().takeSnapshot();
+            System.out.printf("%-14s %10d %10.2f %10.2f %12.2f%n", entry.getKey(), snapshot.count(),
+                    percentile(snapshot, 0.5), percentile(snapshot, 0.99), snapshot.mean(TimeUnit.MILLISECONDS));
+        });
+        System.out.printf("Пик кучи: %.1f МБ%n", peakHeap / 1024.0 / 1024.0);
+    }
+
+    private static double percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Ожидается ключ=значение: " + arg);
+            }
+            params.put(arg.substring(0, eq).replaceFirst("^--", ""), arg.substring(eq + 1));
+        }
+        return params;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.Lemmatizer;
+import searchengine.search.TextToken;
+import searchengine.services.IndexingService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Лемматизация страницы: словарная (Lemmatizer) и конвейер CoreNLP, которым пользуются индексатор и поиск,
+// а также подсчёт частот лемм страницы
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LemmatizationBenchmark {
+
+    @Param({"ru", "en"})
+    public String lang;
+
+    private String text;
+    private Lemmatizer lemmatizer;
+    private IndexingService indexingService;
+    private List<String> lemmas;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = Corpus.byLanguage(lang);
+        lemmatizer = new Lemmatizer();
+        indexingService = Corpus.analyzer();
+        lemmas = indexingService.getLemmas(text);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        indexingService.shutdown();
+    }
+
+    // Словарь Lemmatizer только русский, для английского текста это проход по пропускаемым словам
+    @Benchmark
+    public Map<String, Integer> lemmatizerFrequencies() {
+        return lemmatizer.getLemmasWithFrequency(text);
+    }
+
+    @Benchmark
+    public List<String> coreNlpLemmas() {
+        return indexingService.getLemmas(text);
+    }
+
+    @Benchmark
+    public List<TextToken> coreNlpTokens() {
+        return indexingService.analyze(text);
+    }
+
+    @Benchmark
+    public Map<String, Integer> countLemmas() {
+        return IndexingService.countLemmas(lemmas);
+    }
+}
@@ -0,0 +1,88 @@
+package searchengine.benchmark;
+
+import searchengine.search.CompressionDictionary;
+import searchengine.search.TextCompression;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Замер хранения HTML страниц: степень сжатия и время записи (сжатия) и чтения (распаковки)
+// без словаря и со словарём, обученным по первым страницам. На вход — каталог с сохранёнными
+// страницами одного сайта (*.html), например выгрузка page.content или wget --mirror.
+// Запуск из каталога benchmarks:
+// mvn exec:java -Dexec.mainClass=searchengine.benchmark.PageContentBenchmark -Dexec.args="<каталог> [образцов]"
+public class PageContentBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Использование: PageContentBenchmark <каталог с *.html> [число образцов для словаря]");
+            return;
+        }
+        List<String> pages = readPages(Path.of(args[0]));
+        if (pages.isEmpty()) {
+            System.err.println("В каталоге нет страниц: " + args[0]);
+            return;
+        }
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        long originalBytes = pages.stream().mapToLong(page -> page.getBytes(StandardCharsets.UTF_8).length).sum();
+        System.out.printf("Страниц: %d, исходный объём: %d байт (MEDIUMTEXT)%n", pages.size(), originalBytes);
+
+        long trainStart = System.nanoTime();
+        byte[] dictionary = CompressionDictionary.train(pages.subList(0, Math.min(samples, pages.size())),
+                CompressionDictionary.MAX_SIZE);
+        System.out.printf("Словарь: %d байт по %d страницам за %.1f мс%n", dictionary.length,
+                Math.min(samples, pages.size()), (System.nanoTime() - trainStart) / 1e6);
+
+        System.out.printf("%-14s %12s %8s %12s %12s%n", "режим", "байт", "сжатие", "запись, мс", "чтение, мс");
+        report("без словаря", pages, null, originalBytes);
+        report("со словарём", pages, dictionary.length == 0 ? null : dictionary, originalBytes);
+    }
+
+    // Лучший из нескольких проходов, первый проход прогревает JIT
+    private static void report(String mode, List<String> pages, byte[] dictionary, long originalBytes) {
+        long bestWrite = Long.MAX_VALUE;
+        long bestRead = Long.MAX_VALUE;
+        long storedBytes = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<byte[]> stored = new ArrayList<>(pages.size());
+            long start = System.nanoTime();
+            for (String page : pages) {
+                stored.add(TextCompression.compress(page, dictionary));
+            }
+            bestWrite = Math.min(bestWrite, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            long checksum = 0;
+            for (byte[] data : stored) {
+                checksum += TextCompression.decompress(data, dictionary).length();
+            }
+            bestRead = Math.min(bestRead, System.nanoTime() - start);
+            if (checksum == 0) {
+                throw new IllegalStateException("Страницы распакованы пустыми");
+            }
+            storedBytes = stored.stream().mapToLong(data -> data.length).sum();
+        }
+        System.out.printf("%-14s %12d %7.2fx %12.1f %12.1f%n", mode, storedBytes,
+                (double) originalBytes / storedBytes, bestWrite / 1e6, bestRead / 1e6);
+    }
+
+    private static List<String> readPages(Path directory) throws IOException {
+        List<String> pages = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.filter(Files::isRegularFile)
+                    .filter(path -> path.toString().endsWith(".html") || path.toString().endsWith(".htm"))
+                    .sorted()
+                    .toList()) {
+                pages.add(Files.readString(file));
+            }
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,101 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.search.BlockMaxConjunction;
+import searchengine.search.BlockMaxConjunction.ScoredTerm;
+import searchengine.search.BlockMaxConjunction.TopHits;
+import searchengine.search.Bm25;
+import searchengine.search.PositionMatcher;
+import searchengine.search.PostingList;
+import searchengine.search.PostingListBuilder;
+import searchengine.search.TopKCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Пересечение списков страниц с ранжированием BM25 (BlockMaxConjunction) и отбор лучших k страниц.
+// Списки строятся детерминированно (фиксированное зерно) по доле страниц, на которых есть лемма:
+// terms — доли через запятую, от редкой леммы к частой
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostingsBenchmark {
+
+    private static final long SEED = 42;
+    private static final int PAGE_LENGTH = 500;
+
+    @Param({"1000000"})
+    public int pages;
+
+    @Param({"0.01,0.3", "0.05,0.2,0.5", "0.3,0.6"})
+    public String terms;
+
+    @Param({"10"})
+    public int k;
+
+    private List<ScoredTerm> scoredTerms;
+    private int[] candidateIds;
+    private double[] candidateScores;
+    private final Bm25 bm25 = Bm25.of(PAGE_LENGTH);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(SEED);
+        scoredTerms = new ArrayList<>();
+        String[] densities = terms.split(",");
+        for (int i = 0; i < densities.length; i++) {
+            double density = Double.parseDouble(densities[i]);
+            PostingListBuilder builder = new PostingListBuilder();
+            for (int page = 1; page <= pages; page++) {
+                if (random.nextDouble() < density) {
+                    // Частота леммы на странице: в основном единицы, изредка десятки
+                    builder.add(page, 1 + (int) Math.min(60, -Math.log(1 - random.nextDouble()) * 3));
+                }
+            }
+            PostingList postings = builder.build();
+            scoredTerms.add(new ScoredTerm("lemma" + i, postings, Bm25.idf(postings.size(), pages)));
+        }
+
+        // Кандидаты для кучи: столько страниц, сколько находит самая редкая лемма
+        int candidates = scoredTerms.stream().mapToInt(term -> term.postings().size()).min().orElse(0);
+        SplittableRandom scores = new SplittableRandom(SEED);
+        candidateIds = new int[candidates];
+        candidateScores = new double[candidates];
+        for (int i = 0; i < candidates; i++) {
+            candidateIds[i] = i + 1;
+            candidateScores[i] = scores.nextDouble() * 20;
+        }
+    }
+
+    @Benchmark
+    public TopHits intersect() {
+        return BlockMaxConjunction.search(scoredTerms, page -> true, PositionMatcher.NONE, page -> PAGE_LENGTH,
+                bm25, k);
+    }
+
+    @Benchmark
+    public List<TopKCollector.ScoredPage> topK() {
+        TopKCollector top = new TopKCollector(k);
+        for (int i = 0; i < candidateIds.length; i++) {
+            top.offer(candidateIds[i], candidateScores[i]);
+        }
+        return top.sorted();
+    }
+}
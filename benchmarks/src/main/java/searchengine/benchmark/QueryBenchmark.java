@@ -0,0 +1,71 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.search.QueryParser;
+import searchengine.search.QueryParser.ParsedQuery;
+import searchengine.services.IndexingService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Разбор поисковых запросов из corpus/queries.txt: синтаксис (фразы, NEAR/k) и лемматизация текста,
+// фраз и сторон NEAR, как в SearchService.processQuery. Исправление опечаток зависит от словаря лемм
+// в базе и сюда не входит. Одна операция — весь список запросов
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private List<String> queries;
+    private IndexingService indexingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queries = Corpus.lines(Corpus.QUERIES);
+        indexingService = Corpus.analyzer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        indexingService.shutdown();
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(QueryParser.parse(query));
+        }
+    }
+
+    @Benchmark
+    public void parseAndLemmatize(Blackhole blackhole) {
+        for (String query : queries) {
+            ParsedQuery parsed = QueryParser.parse(query);
+            if (!parsed.text().isBlank()) {
+                blackhole.consume(indexingService.analyze(parsed.text()));
+            }
+            for (String phrase : parsed.phrases()) {
+                blackhole.consume(indexingService.analyze(phrase));
+            }
+            for (QueryParser.Near near : parsed.nears()) {
+                blackhole.consume(indexingService.getLemmas(near.left()));
+                blackhole.consume(indexingService.getLemmas(near.right()));
+            }
+        }
+    }
+}
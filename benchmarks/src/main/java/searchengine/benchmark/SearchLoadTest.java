@@ -0,0 +1,238 @@
+package searchengine.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.Application;
+import searchengine.controllers.SearchController;
+import searchengine.dto.statistics.SearchIndexStatistics;
+import searchengine.dto.statistics.SearchResponse;
+import searchengine.search.ShardedIndex;
+import searchengine.services.CorpusStatisticsService;
+import searchengine.services.SearchIndexService;
+import searchengine.services.SearchRejectedException;
+import searchengine.services.SearchService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Нагрузочный тест поиска на базе из application.yaml (или указанной параметрами --spring.datasource.*).
+//   generate — синтетический сайт в таблицах (SyntheticCorpus) и построение поискового индекса по нему:
+//     pages, vocabulary, exponent, page-words, seed
+//   replay — запросы к SearchController из нескольких потоков: queries (файл, запрос на строку) или
+//     сгенерированные из тех же псевдослов (distinct-queries, query-exponent, vocabulary),
+//     concurrency, requests, warmup, limit
+// Выводятся пропускная способность, p50/p95/p99 времени ответа, исходы запросов и доля попаданий в кэш.
+// Пример: SearchLoadTest generate pages=1000000, затем SearchLoadTest replay concurrency=16 requests=20000
+public class SearchLoadTest {
+
+    private static final long POLL_INTERVAL_MS = 500;
+    private static final long READY_TIMEOUT_MINUTES = 120;
+    // Самые частые псевдослова встречаются почти на каждой странице; в запросы они не берутся
+    private static final int QUERY_SKIP_RANKS = 20;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !Set.of("generate", "replay").contains(args[0])) {
+            System.err.println("Использование: SearchLoadTest generate|replay [ключ=значение ...] " +
+                    "[--свойство=значение ...]");
+            System.exit(2);
+        }
+        Map<String, String> params = new HashMap<>();
+        List<String> springArgs = new ArrayList<>(List.of(
+                "--spring.main.web-application-type=none",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--spring.datasource.hikari.data-source-properties.rewriteBatchedStatements=true"));
+        for (String arg : Arrays.copyOfRange(args, 1, args.length)) {
+            int eq = arg.indexOf('=');
+            if (arg.startsWith("--")) {
+                springArgs.add(arg);
+            } else if (eq > 0) {
+                params.put(arg.substring(0, eq), arg.substring(eq + 1));
+            } else {
+                throw new IllegalArgumentException("Ожидается ключ=значение: " + arg);
+            }
+        }
+
+        try (ConfigurableApplicationContext context =
+                     SpringApplication.run(Application.class, springArgs.toArray(String[]::new))) {
+            if (args[0].equals("generate")) {
+                generate(context, params);
+            } else {
+                replay(context, params);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void generate(ConfigurableApplicationContext context, Map<String, String> params)
+            throws InterruptedException {
+        SyntheticCorpus.Options options = new SyntheticCorpus.Options(
+                Integer.parseInt(params.getOrDefault("pages", "10000")),
+                Integer.parseInt(params.getOrDefault("vocabulary", "50000")),
+                Double.parseDouble(params.getOrDefault("exponent", "1.0")),
+                Integer.parseInt(params.getOrDefault("page-words", "200")),
+                Long.parseLong(params.getOrDefault("seed", "1")));
+        SearchIndexService searchIndexService = context.getBean(SearchIndexService.class);
+        awaitIndex(searchIndexService, 0);
+        int indexedBefore = searchIndexService.getIndex().pageCount(0);
+
+        new SyntheticCorpus(context.getBean(JdbcTemplate.class), options).generate();
+
+        // Индекс дописывается в фоне; ждём, пока в нём окажутся все новые страницы
+        long start = System.nanoTime();
+        context.getBean(CorpusStatisticsService.class).requestReload();
+        searchIndexService.requestRefresh();
+        awaitIndex(searchIndexService, indexedBefore + options.pages());
+        System.out.printf("Поисковый индекс построен за %.1f с: %d страниц%n", (System.nanoTime() - start) / 1e9,
+                searchIndexService.getIndex().pageCount(0));
+    }
+
+    private static void replay(ConfigurableApplicationContext context, Map<String, String> params)
+            throws Exception {
+        int concurrency = Integer.parseInt(params.getOrDefault("concurrency", "8"));
+        int requests = Integer.parseInt(params.getOrDefault("requests", "10000"));
+        int warmup = Integer.parseInt(params.getOrDefault("warmup", "1000"));
+        int limit = Integer.parseInt(params.getOrDefault("limit", "20"));
+        List<String> queries = params.containsKey("queries")
+                ? readQueries(Path.of(params.get("queries")))
+                : generateQueries(params);
+        // Запросы журнала выбираются по закону Ципфа по их номеру: первые повторяются чаще всего
+        ZipfDistribution queryChoice = new ZipfDistribution(queries.size(),
+                Double.parseDouble(params.getOrDefault("query-exponent", "1.0")));
+        long seed = Long.parseLong(params.getOrDefault("seed", "1"));
+
+        SearchIndexService searchIndexService = context.getBean(SearchIndexService.class);
+        awaitIndex(searchIndexService, 1);
+        SearchController controller = context.getBean(SearchController.class);
+        SearchService searchService = context.getBean(SearchService.class);
+        System.out.printf("Индекс: %d страниц; запросов в журнале: %d; потоков: %d%n",
+                searchIndexService.getIndex().pageCount(0), queries.size(), concurrency);
+
+        run(controller, queries, queryChoice, seed, concurrency, warmup, limit, null, null);
+        SearchIndexStatistics before = searchService.getIndexStatistics();
+        long[] latencies = new long[requests];
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        run(controller, queries, queryChoice, seed + 1, concurrency, requests, limit, latencies, outcomes);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        SearchIndexStatistics after = searchService.getIndexStatistics();
+
+        Arrays.sort(latencies);
+        long hits = after.getCacheHits() - before.getCacheHits();
+        long lookups = hits + after.getCacheMisses() - before.getCacheMisses();
+        Map<String, Long> outcomeCounts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> outcomeCounts.put(outcome, count.sum()));
+        System.out.printf("Запросов: %d за %.1f с — %.1f запросов/с%n", requests, seconds, requests / seconds);
+        System.out.printf("Время ответа, мс: p50 %.2f, p95 %.2f, p99 %.2f, max %.2f%n",
+                percentile(latencies, 50), percentile(latencies, 95), percentile(latencies, 99),
+                latencies[latencies.length - 1] / 1e6);
+        System.out.printf("Исходы: %s; попадания в кэш: %.1f%% (%d из %d)%n", outcomeCounts,
+                lookups == 0 ? 0 : 100.0 * hits / lookups, hits, lookups);
+    }
+
+    // count запросов из concurrency потоков; latencies и outcomes == null — прогрев без записи результатов
+    private static void run(SearchController controller, List<String> queries, ZipfDistribution queryChoice,
+                            long seed, int concurrency, int count, int limit, long[] latencies,
+                            Map<String, LongAdder> outcomes) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                SplittableRandom random = new SplittableRandom(seed * 1_000_003 + worker);
+                workers.add(executor.submit(() -> {
+                    int request;
+                    while ((request = next.getAndIncrement()) < count) {
+                        String query = queries.get(queryChoice.sample(random));
+                        long start = System.nanoTime();
+                        String outcome;
+                        try {
+                            SearchResponse response = controller.search(query, null, 0, limit, null);
+                            outcome = !response.isResult() ? "error" : response.isPartial() ? "partial" : "ok";
+                        } catch (SearchRejectedException e) {
+                            outcome = "rejected";
+                        } catch (RuntimeException e) {
+                            outcome = "exception";
+                        }
+                        if (latencies != null) {
+                            latencies[request] = System.nanoTime() - start;
+                            outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Запросы из одного-трёх псевдослов синтетического корпуса (словарь того же размера, что при generate)
+    private static List<String> generateQueries(Map<String, String> params) {
+        int distinct = Integer.parseInt(params.getOrDefault("distinct-queries", "1000"));
+        int vocabulary = Integer.parseInt(params.getOrDefault("vocabulary", "50000"));
+        ZipfDistribution words = new ZipfDistribution(vocabulary - QUERY_SKIP_RANKS,
+                Double.parseDouble(params.getOrDefault("exponent", "1.0")));
+        SplittableRandom random = new SplittableRandom(Long.parseLong(params.getOrDefault("seed", "1")));
+        List<String> queries = new ArrayList<>(distinct);
+        for (int i = 0; i < distinct; i++) {
+            int length = 1 + random.nextInt(3);
+            StringBuilder query = new StringBuilder();
+            for (int word = 0; word < length; word++) {
+                query.append(word == 0 ? "" : " ")
+                        .append(SyntheticCorpus.word(QUERY_SKIP_RANKS + words.sample(random)));
+            }
+            queries.add(query.toString());
+        }
+        return queries;
+    }
+
+    private static List<String> readQueries(Path file) throws IOException {
+        List<String> queries = Files.readAllLines(file).stream().map(String::trim).filter(line -> !line.isEmpty())
+                .toList();
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("В файле нет запросов: " + file);
+        }
+        return queries;
+    }
+
+    // Индекс открыт и содержит не меньше pages страниц
+    private static void awaitIndex(SearchIndexService searchIndexService, int pages) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(READY_TIMEOUT_MINUTES);
+        while (true) {
+            ShardedIndex index = searchIndexService.getIndex();
+            if (index != null && index.pageCount(0) >= pages) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Поисковый индекс не готов: страниц " +
+                        (index == null ? 0 : index.pageCount(0)) + " из " + pages);
+            }
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
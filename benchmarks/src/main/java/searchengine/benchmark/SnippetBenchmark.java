@@ -0,0 +1,60 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.search.SnippetBuilder;
+import searchengine.search.TextToken;
+import searchengine.search.TokenOffsets;
+import searchengine.services.IndexingService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Сниппет результата поиска: разбор сохранённых позиций слов страницы и выбор окна с выделением.
+// Леммы страницы и запроса получаются один раз при подготовке
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnippetBenchmark {
+
+    private static final int SNIPPET_LENGTH = 300;
+
+    @Param({"ru", "en"})
+    public String lang;
+
+    private String text;
+    private byte[] storedTokens;
+    private List<String> queryLemmas;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = Corpus.byLanguage(lang);
+        IndexingService indexingService = Corpus.analyzer();
+        try {
+            List<TextToken> tokens = indexingService.analyze(text);
+            storedTokens = TokenOffsets.encode(tokens);
+            String query = "en".equals(lang) ? "leopard population caucasus" : "леопард популяция Кавказа";
+            queryLemmas = indexingService.getLemmas(query);
+        } finally {
+            indexingService.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String snippet() {
+        return SnippetBuilder.build(text, TokenOffsets.decode(storedTokens), queryLemmas, SNIPPET_LENGTH);
+    }
+}
@@ -0,0 +1,147 @@
+package searchengine.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.search.TextCompression;
+import searchengine.search.TextToken;
+import searchengine.search.TokenOffsets;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Синтетический сайт прямо в таблицах site, page, page_projection, lemma и index — так же, как их
+// заполняет индексатор, но без загрузки и лемматизации. Слова страниц — псевдослова, частоты которых
+// подчиняются закону Ципфа; лемма псевдослова совпадает с ним самим, поэтому запросы из этих слов
+// разбираются обычным путём. Страница строится по своему номеру и зерну, т. е. корпус воспроизводим
+final class SyntheticCorpus {
+
+    private static final String CONSONANTS = "bdfgklmnprtvz";
+    // Без e и s, чтобы лемматизатор не принимал окончания псевдослов за -es, -ed, -s
+    private static final String VOWELS = "aiou";
+    private static final int SYLLABLES = CONSONANTS.length() * VOWELS.length();
+
+    private static final int BATCH_PAGES = 500;
+    private static final int PROGRESS_PAGES = 10_000;
+
+    private static final String SITE_SQL =
+            "INSERT INTO site (status, status_time, last_error, url, name) VALUES ('INDEXED', ?, NULL, ?, ?)";
+    private static final String LEMMA_SQL = "INSERT INTO lemma (id, site_id, lemma, frequency) VALUES (?, ?, ?, 0)";
+    private static final String PAGE_SQL =
+            "INSERT INTO page (id, site_id, path, code, content) VALUES (?, ?, ?, 200, NULL)";
+    private static final String PROJECTION_SQL = "INSERT INTO page_projection " +
+            "(page_id, site_id, path, title, description, text_length, text, tokens) VALUES (?, ?, ?, ?, '', ?, ?, ?)";
+    private static final String INDEX_SQL = "INSERT INTO `index` (page_id, lemma_id, `rank`) VALUES (?, ?, ?)";
+    private static final String FREQUENCY_SQL = "UPDATE lemma SET frequency = ? WHERE id = ?";
+    private static final String UNUSED_LEMMAS_SQL = "DELETE FROM lemma WHERE site_id = ? AND frequency = 0";
+
+    record Options(int pages, int vocabulary, double exponent, int pageWords, long seed) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Options options;
+    private final ZipfDistribution words;
+
+    SyntheticCorpus(JdbcTemplate jdbcTemplate, Options options) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.options = options;
+        this.words = new ZipfDistribution(options.vocabulary(), options.exponent());
+    }
+
+    // Псевдослово ранга rank: не короче двух слогов, разные ранги дают разные слова
+    static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        int value = rank + SYLLABLES;
+        while (value > 0) {
+            int syllable = value % SYLLABLES;
+            word.append(CONSONANTS.charAt(syllable / VOWELS.length()))
+                    .append(VOWELS.charAt(syllable % VOWELS.length()));
+            value /= SYLLABLES;
+        }
+        return word.toString();
+    }
+
+    // Записывает сайт и возвращает его id
+    long generate() {
+        long start = System.nanoTime();
+        String url = "http://synthetic-" + options.pages() + "-" + options.seed() + ".local";
+        jdbcTemplate.update(SITE_SQL, new Timestamp(System.currentTimeMillis()), url, "Synthetic " + options.pages());
+        long siteId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM site WHERE url = ?", Long.class, url);
+
+        // Id лемм и страниц назначаются явно, чтобы записи индекса ссылались на них без обратного чтения
+        long firstLemmaId = nextId("lemma");
+        List<Object[]> lemmaRows = new ArrayList<>(options.vocabulary());
+        for (int rank = 0; rank < options.vocabulary(); rank++) {
+            lemmaRows.add(new Object[]{firstLemmaId + rank, siteId, word(rank)});
+        }
+        jdbcTemplate.batchUpdate(LEMMA_SQL, lemmaRows);
+
+        long firstPageId = nextId("page");
+        int[] documentFrequency = new int[options.vocabulary()];
+        long postings = 0;
+        for (int from = 0; from < options.pages(); from += BATCH_PAGES) {
+            int to = Math.min(options.pages(), from + BATCH_PAGES);
+            List<Object[]> pageRows = new ArrayList<>();
+            List<Object[]> projectionRows = new ArrayList<>();
+            List<Object[]> indexRows = new ArrayList<>();
+            for (int number = from; number < to; number++) {
+                long pageId = firstPageId + number;
+                String path = "/p/" + number;
+                Map<Integer, Integer> counts = new HashMap<>();
+                List<TextToken> tokens = new ArrayList<>(options.pageWords());
+                String text = render(number, counts, tokens);
+                pageRows.add(new Object[]{pageId, siteId, path});
+                projectionRows.add(new Object[]{pageId, siteId, path, "Страница " + number, text.length(),
+                        TextCompression.compress(text), TokenOffsets.encode(tokens)});
+                counts.forEach((rank, count) -> {
+                    indexRows.add(new Object[]{pageId, firstLemmaId + rank, (float) count});
+                    documentFrequency[rank]++;
+                });
+            }
+            jdbcTemplate.batchUpdate(PAGE_SQL, pageRows);
+            jdbcTemplate.batchUpdate(PROJECTION_SQL, projectionRows);
+            jdbcTemplate.batchUpdate(INDEX_SQL, indexRows);
+            postings += indexRows.size();
+            if (to % PROGRESS_PAGES == 0 || to == options.pages()) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Записано страниц: %d из %d, записей индекса: %d (%.0f стр/с)%n",
+                        to, options.pages(), postings, to / seconds);
+            }
+        }
+
+        List<Object[]> frequencyRows = new ArrayList<>();
+        for (int rank = 0; rank < documentFrequency.length; rank++) {
+            if (documentFrequency[rank] > 0) {
+                frequencyRows.add(new Object[]{documentFrequency[rank], firstLemmaId + rank});
+            }
+        }
+        jdbcTemplate.batchUpdate(FREQUENCY_SQL, frequencyRows);
+        jdbcTemplate.update(UNUSED_LEMMAS_SQL, siteId);
+        System.out.printf("Сайт %s (id %d): %d страниц, %d лемм, %d записей индекса за %.1f с%n", url, siteId,
+                options.pages(), frequencyRows.size(), postings, (System.nanoTime() - start) / 1e9);
+        return siteId;
+    }
+
+    // Текст страницы; counts — частоты рангов слов, tokens — позиции слов, как их сохраняет индексатор
+    private String render(int number, Map<Integer, Integer> counts, List<TextToken> tokens) {
+        SplittableRandom random = new SplittableRandom(options.seed() ^ (number * 0x9E3779B97F4A7C15L));
+        StringBuilder text = new StringBuilder(options.pageWords() * 8);
+        for (int i = 0; i < options.pageWords(); i++) {
+            int rank = words.sample(random);
+            String word = word(rank);
+            int start = text.length();
+            text.append(word);
+            tokens.add(new TextToken(word, start, text.length()));
+            text.append(i % 12 == 11 ? ". " : " ");
+            counts.merge(rank, 1, Integer::sum);
+        }
+        return text.toString().trim();
+    }
+
+    private long nextId(String table) {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        return max == null ? 1 : max + 1;
+    }
+}
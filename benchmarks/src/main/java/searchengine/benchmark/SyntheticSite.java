@@ -0,0 +1,154 @@
+package searchengine.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Локальный сайт для замеров обхода: граф страниц строится по номеру страницы и зерну, поэтому
+// при одинаковых параметрах сайт всегда один и тот же. Страница 0 — главная (/), остальные — /p/<номер>.
+// Каждая страница ссылается на fanOut дочерних (дерево, все страницы достижимы с главной) и на
+// fanOut / 2 случайных; доля errorRate страниц отвечает ошибкой 404 или 500
+final class SyntheticSite implements AutoCloseable {
+
+    private static final int SERVER_THREADS = 16;
+
+    record Options(int pages, int fanOut, int pageWords, int latencyMs, double errorRate, long seed) {
+    }
+
+    private final Options options;
+    private final String[] vocabulary;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(SERVER_THREADS);
+
+    SyntheticSite(Options options) throws IOException {
+        this.options = options;
+        // Словарь — слова русского текста для бенчмарков, чтобы страницы лемматизировались как настоящие
+        this.vocabulary = Arrays.stream(Corpus.text(Corpus.RUSSIAN).split("[^а-яА-ЯёЁ]+"))
+                .map(word -> word.toLowerCase(Locale.ROOT))
+                .filter(word -> word.length() > 1)
+                .distinct()
+                .toArray(String[]::new);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // Число страниц, которые отвечают ошибкой
+    int errorPages() {
+        int errors = 0;
+        for (int page = 1; page < options.pages(); page++) {
+            if (errorStatus(page) != 0) {
+                errors++;
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            int page = pageOf(exchange.getRequestURI().getPath());
+            if (options.latencyMs() > 0) {
+                Thread.sleep(options.latencyMs());
+            }
+            int status = page < 0 ? 404 : errorStatus(page);
+            byte[] body = status == 0
+                    ? render(page).getBytes(StandardCharsets.UTF_8)
+                    : ("<html><body>Ошибка " + status + "</body></html>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(status == 0 ? 200 : status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private int pageOf(String path) {
+        if (path.equals("/")) {
+            return 0;
+        }
+        if (path.startsWith("/p/")) {
+            try {
+                int page = Integer.parseInt(path.substring(3));
+                return page > 0 && page < options.pages() ? page : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // 0 — страница доступна; главная доступна всегда
+    private int errorStatus(int page) {
+        if (page == 0) {
+            return 0;
+        }
+        SplittableRandom random = new SplittableRandom(options.seed() * 31 + page);
+        if (random.nextDouble() >= options.errorRate()) {
+            return 0;
+        }
+        return random.nextBoolean() ? 404 : 500;
+    }
+
+    private String render(int page) {
+        SplittableRandom random = new SplittableRandom(options.seed() ^ (page * 0x9E3779B97F4A7C15L));
+        StringBuilder html = new StringBuilder(options.pageWords() * 12 + 512);
+        html.append("<html><head><meta charset=\"utf-8\"><title>Страница ").append(page).append("</title></head><body>");
+        html.append("<h1>Страница ").append(page).append("</h1><p>");
+        for (int i = 0; i < options.pageWords(); i++) {
+            // Частые слова встречаются чаще редких: номер слова смещён к началу словаря
+            double skew = random.nextDouble();
+            html.append(vocabulary[(int) (vocabulary.length * skew * skew)]);
+            html.append(i % 12 == 11 ? ". " : " ");
+        }
+        html.append("</p><ul>");
+        for (int link : links(page, random)) {
+            html.append("<li><a href=\"").append(link == 0 ? "/" : "/p/" + link).append("\">Страница ")
+                    .append(link).append("</a></li>");
+        }
+        html.append("</ul></body></html>");
+        return html.toString();
+    }
+
+    private List<Integer> links(int page, SplittableRandom random) {
+        int pages = options.pages();
+        int fanOut = options.fanOut();
+        Integer[] links = new Integer[fanOut + fanOut / 2];
+        int count = 0;
+        for (int i = 1; i <= fanOut; i++) {
+            long child = (long) page * fanOut + i;
+            if (child < pages) {
+                links[count++] = (int) child;
+            }
+        }
+        for (int i = 0; i < fanOut / 2; i++) {
+            links[count++] = random.nextInt(pages);
+        }
+        return Arrays.asList(links).subList(0, count);
+    }
+}
@@ -0,0 +1,32 @@
+package searchengine.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Распределение Ципфа на рангах 0..size-1: вероятность ранга r пропорциональна 1 / (r + 1)^exponent.
+// Выборка — двоичный поиск по накопленным вероятностям
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int size, double exponent) {
+        cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+
+    int size() {
+        return cumulative.length;
+    }
+
+    int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,26 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import searchengine.crawl.UrlCanonicalizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawl")
+public class CrawlSettings {
+    private int minDelayMs = 500;       // Пауза перед загрузкой страницы, нижняя граница
+    private int maxDelayMs = 60000;     // Верхняя граница паузы; 0 и 0 — без пауз (замеры, локальные сайты)
+    private String userAgent = "Mozilla/5.0 (Windows; U; WindowsNT 5.1; en-US; rv1.8.1.6) Gecko/20070725 Firefox/2.0.0.6";
+    private int timeoutMs = 5000;       // Тайм-аут загрузки страницы, robots.txt и карты сайта
+    private boolean sitemaps = true;    // Начинать обход с адресов из robots.txt и sitemap.xml
+    private int maxSitemaps = 50;       // Сколько карт (включая вложенные из индексов карт) читать на сайт
+    private int maxSitemapUrls = 50000; // Сколько адресов из карт добавлять в очередь обхода
+    // Параметры запроса, отбрасываемые при приведении адреса к каноническому виду; «*» в конце — префикс
+    private List<String> ignoredQueryParams = new ArrayList<>(UrlCanonicalizer.DEFAULT_IGNORED_PARAMS);
+}
@@ -0,0 +1,18 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "flight-recorder")
+public class FlightRecorderSettings {
+    private boolean enabled = false;        // Непрерывная запись JFR с момента запуска
+    private String settings = "default";    // Настройки JDK: default (около 1% накладных расходов) или profile
+    private long maxAgeMinutes = 60;        // Сколько последних минут хранит кольцевой буфер записи
+    private long maxSizeMb = 250;           // Предельный размер записи на диске
+    private String dumpPath = "";           // Файл, куда запись сбрасывается при остановке; пусто — не сбрасывать
+}
@@ -0,0 +1,17 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "page-content")
+public class PageContentSettings {
+    private boolean dictionary = true;      // Обучать словарь сжатия для каждого сайта
+    private int dictionarySamples = 50;     // Сколько первых страниц сайта идёт на обучение
+    private int dictionarySize = 32768;     // Размер словаря в байтах, не больше 32 КБ
+    private int migrationBatch = 200;       // Страниц за один шаг переноса несжатого HTML
+}
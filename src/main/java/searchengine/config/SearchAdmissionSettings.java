@@ -0,0 +1,18 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-admission")
+public class SearchAdmissionSettings {
+    private int maxConcurrent = 8;              // Сколько запросов выполняется одновременно
+    private int maxQueued = 32;                 // Сколько запросов может ждать; остальные получают 503
+    private long deadlineMs = 1000;             // Срок запроса с момента поступления, включая ожидание
+    private long maxPostings = 20_000_000;      // Сколько шагов по кандидатам может сделать один запрос
+    private int retryAfterSeconds = 1;          // Значение заголовка Retry-After при отказе
+}
@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-cache")
+public class SearchCacheSettings {
+    private int maxEntries = 1000;          // Максимум запросов в кэше, 0 — кэш выключен
+    private long ttlSeconds = 300;          // Время жизни записи
+    private int depth = 200;                // Сколько лучших страниц запоминается для перелистывания
+}
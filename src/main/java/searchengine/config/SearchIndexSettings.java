@@ -0,0 +1,18 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-index")
+public class SearchIndexSettings {
+    private String path = "search-index";   // Каталог с сегментами поискового индекса
+    private int flushPages = 50_000;        // Максимум страниц в одном новом сегменте
+    private int maxSegments = 10;           // При большем числе сегментов запускается слияние
+    private int mergeFactor = 4;            // Сколько соседних сегментов сливается за раз
+    private int searchThreads = 4;          // Потоки для параллельного поиска по шардам сайтов
+}
@@ -8,4 +8,11 @@ import lombok.Setter;
 public class Site {
     private String url;
     private String name;
+
+    // Бюджет одного обхода сайта; 0 — без ограничения. Важные страницы обходятся первыми,
+    // поэтому при исчерпании бюджета остаются непройденными наименее ценные
+    private int maxPages;
+    private int maxDepth;               // Глубина ссылок от главной страницы
+    private long maxBytes;              // Суммарный размер загруженных страниц
+    private int maxDurationMinutes;
 }
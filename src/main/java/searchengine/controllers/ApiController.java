@@ -1,10 +1,13 @@
 package searchengine.controllers;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.services.IndexingProgressService;
 import searchengine.services.StatisticsService;
 
 @RestController
@@ -12,13 +15,21 @@ import searchengine.services.StatisticsService;
 public class ApiController {
 
     private final StatisticsService statisticsService;
+    private final IndexingProgressService indexingProgressService;
 
-    public ApiController(StatisticsService statisticsService) {
+    public ApiController(StatisticsService statisticsService, IndexingProgressService indexingProgressService) {
         this.statisticsService = statisticsService;
+        this.indexingProgressService = indexingProgressService;
     }
 
     @GetMapping("/statistics")
     public ResponseEntity<StatisticsResponse> statistics() {
         return ResponseEntity.ok(statisticsService.getStatistics());
     }
+
+    // Ход индексации по сайтам: событие progress раз в секунду (server-sent events)
+    @GetMapping(value = "/indexing/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter indexingProgress() {
+        return indexingProgressService.subscribe();
+    }
 }
@@ -1,210 +1,143 @@
 package searchengine.controllers;
 
-import searchengine.dto.statistics.SearchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import searchengine.dto.statistics.SearchIndexStatistics;
 import searchengine.dto.statistics.SearchResponse;
 import org.springframework.web.bind.annotation.*;
-import java.util.*;
-import java.util.stream.Collectors;
+import searchengine.dto.statistics.SearchResult;
+import searchengine.search.SuggestionTrie.Suggestion;
+import searchengine.services.IndexingMetrics;
+import searchengine.services.SearchAdmissionService;
+import searchengine.services.SearchRejectedException;
+import searchengine.services.SearchService;
+import searchengine.services.SuggestService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
+@RequiredArgsConstructor
 public class SearchController {
 
-    // Пример базы данных индекса
-    private static final List<SearchResult> indexData = new ArrayList<>();
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
-    // Список стоп-слов (можно расширять)
-    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
-            "и", "на", "к", "с", "по", "в", "не", "да", "так", "ли", "же", "для", "о", "от", "для", "это",
-            "бы", "или", "как", "также", "потому", "что", "перед", "под", "над", "за", "из", "для", "находится", "чтобы"
-    ));
-
-    static {
-        // Инициализация примера данных
-        indexData.add(new SearchResult("http://www.site1.com", "Site 1", "/path/to/page1", "Page 1 Title", "This is the <b>first</b> page snippet", 0.95));
-        indexData.add(new SearchResult("http://www.site2.com", "Site 2", "/path/to/page2", "Page 2 Title", "This is the <b>second</b> page snippet", 0.87));
-    }
+    private final SearchService searchService;
+    private final SuggestService suggestService;
+    private final SearchAdmissionService admissionService;
+    private final IndexingMetrics indexingMetrics;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/search")
     public SearchResponse search(
             @RequestParam(required = false) String query,
             @RequestParam(required = false) String site,
             @RequestParam(defaultValue = "0") int offset,
-            @RequestParam(defaultValue = "20") int limit) {
-
-        // Проверка на пустой запрос
-        if (query == null || query.trim().isEmpty()) {
-            return new SearchResponse(false, "Задан пустой поисковый запрос", 0, Collections.emptyList());
-        }
-
-        // Разбиваем запрос на слова, преобразуем их в леммы и исключаем стоп-слова
-        Set<String> lemmas = processQuery(query);
-
-        // Если нет валидных лемм
-        if (lemmas.isEmpty()) {
-            return new SearchResponse(false, "По вашему запросу ничего не найдено", 0, Collections.emptyList());
-        }
-
-        // Рассчитываем частоту лемм в индексе
-        Map<String, Double> lemmaFrequency = calculateLemmaFrequency();
-
-        // Исключаем леммы, которые встречаются на слишком большом числе страниц (например, более 50%)
-        double threshold = 0.5;  // Леммы, которые встречаются более чем на 50% страниц
-        Set<String> filteredLemmas = lemmas.stream()
-                .filter(lemma -> lemmaFrequency.getOrDefault(lemma, 0.0) <= threshold)
-                .collect(Collectors.toSet());
-
-        // Если нет валидных лемм после фильтрации
-        if (filteredLemmas.isEmpty()) {
-            return new SearchResponse(false, "По вашему запросу ничего не найдено", 0, Collections.emptyList());
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor) {
+
+        // Поиск выполняется по сегментам обратного индекса или, пока их нет, по базе данных;
+        // с курсором из nextCursor предыдущего ответа выдача продолжается без пропуска offset страниц.
+        // Время в метриках включает ожидание в очереди допуска
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            SearchResponse response = admissionService.execute(budget -> {
+                SearchResponse result = searchService.search(query, site, offset, limit, cursor, budget);
+                indexingMetrics.searchScanned(budget.scanned());
+                return result;
+            });
+            outcome = !response.isResult() ? "error" : response.isPartial() ? "partial" : "ok";
+            return response;
+        } catch (SearchRejectedException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            indexingMetrics.searchCompleted(outcome, System.nanoTime() - start);
         }
-
-        // Проверка на отсутствие индекса для указанного сайта
-        if (site != null && indexData.stream().noneMatch(result -> result.getSite().equals(site))) {
-            return new SearchResponse(false, "Указанный сайт не найден в индексе", 0, Collections.emptyList());
-        }
-
-        // Сортируем леммы по частоте (по возрастанию)
-        List<String> sortedLemmas = filteredLemmas.stream()
-                .sorted(Comparator.comparingDouble(lemmaFrequency::get))
-                .toList();
-
-        // Начальный список всех страниц
-        Set<SearchResult> filteredResults = new HashSet<>(indexData);
-
-        // Итерация по леммам, фильтрация результатов
-        for (String lemma : sortedLemmas) {
-            filteredResults = filteredResults.stream()
-                    .filter(result -> containsAnyLemma(result.getTitle(), Set.of(lemma)) ||
-                            containsAnyLemma(result.getSnippet(), Set.of(lemma)))
-                    .collect(Collectors.toSet());
-
-            // Если на текущем шаге нет результатов, завершаем поиск
-            if (filteredResults.isEmpty()) {
-                return new SearchResponse(true, null, 0, Collections.emptyList()); // Пустой список, если нет результатов
-            }
-        }
-
-        // Рассчитываем релевантность для каждой страницы
-        List<SearchResultWithRelevance> relevantResults = new ArrayList<>();
-        for (SearchResult result : filteredResults) {
-            // Собираем леммы, встречающиеся на странице (в заголовке и сниппете)
-            Set<String> resultLemmas = new HashSet<>(processQuery(result.getTitle()));
-            resultLemmas.addAll(processQuery(result.getSnippet()));  // Дополнительно учитываем сниппет
-
-            // Рассчитываем абсолютную релевантность
-            double absoluteRelevance = resultLemmas.stream()
-                    .mapToDouble(this::getRankForLemma) // Получаем rank для каждой леммы
-                    .sum();
-
-            if (absoluteRelevance > 0) {
-                relevantResults.add(new SearchResultWithRelevance(result, absoluteRelevance, generateSnippet(result, filteredLemmas)));
-            }
-        }
-
-        // Находим максимальную абсолютную релевантность среди всех страниц
-        double maxAbsoluteRelevance = relevantResults.stream()
-                .mapToDouble(SearchResultWithRelevance::absoluteRelevance)
-                .max()
-                .orElse(1);
-
-        // Рассчитываем относительную релевантность и сортируем по убыванию
-        relevantResults.sort(Comparator.comparingDouble((SearchResultWithRelevance r) ->
-                r.absoluteRelevance() / maxAbsoluteRelevance).reversed());
-
-        // Пагинация
-        int totalCount = relevantResults.size();
-        List<SearchResult> paginatedResults = relevantResults.stream()
-                .skip(offset)
-                .limit(limit)
-                .map(SearchResultWithRelevance::searchResult)
-                .collect(Collectors.toList());
-
-        return new SearchResponse(true, null, totalCount, paginatedResults);
-    }
-
-    // Метод для получения rank леммы (здесь должна быть ваша логика)
-    private double getRankForLemma(String lemma) {
-        // Пример: возвращаем случайное значение rank для каждой леммы
-        return Math.random() * 10; // Заменить на логику получения rank для леммы
-    }
-
-    // Метод для обработки поискового запроса
-    private Set<String> processQuery(String query) {
-        return Arrays.stream(query.split("\\s+"))
-                .map(this::lemmatize)  // Лемматизация слова
-                .filter(lemma -> !STOP_WORDS.contains(lemma))  // Фильтрация стоп-слов
-                .collect(Collectors.toSet()); // Собираем уникальные леммы в Set
     }
 
-    // Простейшая лемматизация (здесь можно заменить на реальную библиотеку или более сложную логику)
-    private String lemmatize(String word) {
-        word = word.toLowerCase().replaceAll("[^a-zA-Zа-яА-Я]", ""); // Убираем лишние символы
-        if (word.endsWith("ы") || word.endsWith("и")) {
-            return word.substring(0, word.length() - 1); // Простая замена для русского языка
+    // Потоковая выдача в формате NDJSON: по строке на результат, последней строкой — ответ без data
+    // (count, nextCursor, partial). Результаты отбираются и отправляются порциями по batch страниц,
+    // поэтому первые из них видны до окончания поиска, а память запроса ограничена размером порции
+    @GetMapping(value = "/search/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream(
+            @RequestParam(required = false) String query,
+            @RequestParam(required = false) String site,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "20") int batch,
+            @RequestParam(required = false) String cursor) {
+
+        // Без положительных limit и batch порции не определены: запрос отклоняется, а не ищет по одной странице
+        if (limit <= 0 || batch <= 0) {
+            SearchResponse error = new SearchResponse(false, "Параметры limit и batch должны быть больше нуля",
+                    0, List.of());
+            return ResponseEntity.badRequest().contentType(NDJSON).body(out -> writeLine(out, error));
         }
-        return word;
-    }
 
-    // Проверка, содержит ли текст хотя бы одно слово из лемм
-    private boolean containsAnyLemma(String text, Set<String> lemmas) {
-        return lemmas.stream().anyMatch(text.toLowerCase()::contains);
+        StreamingResponseBody body = out -> {
+            String next = cursor;
+            int sent = 0;
+            while (true) {
+                int size = Math.min(batch, limit - sent);
+                SearchResponse page;
+                try {
+                    // Каждая порция проходит допуск отдельно, как обычный запрос
+                    String pageCursor = next;
+                    page = admissionService.execute(budget -> searchService.search(query, site, 0, size, pageCursor,
+                            budget));
+                } catch (SearchRejectedException e) {
+                    page = new SearchResponse(false, e.getMessage(), 0, List.of());
+                }
+                if (page.isResult()) {
+                    for (SearchResult result : page.getData()) {
+                        writeLine(out, result);
+                    }
+                    sent += page.getData().size();
+                    next = page.getNextCursor();
+                }
+                if (!page.isResult() || next == null || sent >= limit) {
+                    page.setData(List.of());
+                    writeLine(out, page);
+                    return;
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
-    // Генерация сниппета с выделением совпадений
-    private String generateSnippet(SearchResult result, Set<String> lemmas) {
-        String text = result.getTitle() + " " + result.getSnippet(); // Составляем полный текст из заголовка и сниппета
-        String snippet = highlightMatches(text, lemmas); // Выделяем совпадения с запросом
-
-        // Ограничиваем длину сниппета (например, до 300 символов, что обычно соответствует примерно трем строкам)
-        if (snippet.length() > 300) {
-            snippet = snippet.substring(0, 300) + "..."; // Добавляем многоточие, если сниппет длиннее 300 символов
-        }
-
-        return snippet;
+    // Подсказки для последнего слова запроса по мере ввода
+    @GetMapping("/suggest")
+    public List<Suggestion> suggest(
+            @RequestParam(required = false) String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return suggestService.suggest(query, limit);
     }
 
-    // Метод для выделения совпадений
-    private String highlightMatches(String text, Set<String> lemmas) {
-        for (String lemma : lemmas) {
-            text = text.replaceAll("(?i)(" + lemma + ")", "<b>$1</b>"); // Выделяем совпадения
-        }
-        return text;
+    // Размер поискового индекса и время выполнения запросов
+    @GetMapping("/search/stats")
+    public SearchIndexStatistics stats() {
+        return searchService.getIndexStatistics();
     }
 
-    // Метод для подсчета частоты лемм в индексе
-    private Map<String, Double> calculateLemmaFrequency() {
-        Map<String, Integer> lemmaCount = new HashMap<>();
-        int totalDocuments = indexData.size();
-
-        // Подсчитываем количество документов, в которых встречается каждая лемма
-        for (SearchResult result : indexData) {
-            Set<String> lemmasInDoc = processQuery(result.getTitle());
-            lemmasInDoc.addAll(processQuery(result.getSnippet()));  // Дополнительно учитываем сниппет
-            for (String lemma : lemmasInDoc) {
-                lemmaCount.put(lemma, lemmaCount.getOrDefault(lemma, 0) + 1);
-            }
-        }
-
-        // Преобразуем в частоту появления
-        Map<String, Double> lemmaFrequency = new HashMap<>();
-        for (Map.Entry<String, Integer> entry : lemmaCount.entrySet()) {
-            double frequency = (double) entry.getValue() / totalDocuments;
-            lemmaFrequency.put(entry.getKey(), frequency);
-        }
-
-        // Сортируем леммы по возрастанию частоты
-        return lemmaFrequency.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new)); // LinkedHashMap сохраняет порядок
+    // Перегрузка: 503 с заголовком Retry-After, чтобы клиент повторил запрос позже, а не сразу
+    @ExceptionHandler(SearchRejectedException.class)
+    public ResponseEntity<SearchResponse> rejected(SearchRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new SearchResponse(false, e.getMessage(), 0, List.of()));
     }
 
-    // Вспомогательный record для хранения результатов с релевантностью и сниппетом
-    public record SearchResultWithRelevance(SearchResult searchResult, double absoluteRelevance, String snippet) {
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+        out.flush();
     }
 }
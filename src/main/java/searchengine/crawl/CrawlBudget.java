@@ -0,0 +1,52 @@
+package searchengine.crawl;
+
+import searchengine.config.Site;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничения одного обхода сайта: страницы, байты и время. Ограничение глубины применяет
+ * {@link CrawlFrontier}. Нулевое значение в настройках сайта — без ограничения.
+ */
+public final class CrawlBudget {
+
+    private final int maxPages;
+    private final long maxBytes;
+    private final long maxNanos;
+    private final long startedAt = System.nanoTime();
+    private int pages;
+    private long bytes;
+
+    private CrawlBudget(int maxPages, long maxBytes, long maxNanos) {
+        this.maxPages = maxPages;
+        this.maxBytes = maxBytes;
+        this.maxNanos = maxNanos;
+    }
+
+    // Бюджет из настроек сайта; отсчёт времени начинается сейчас
+    public static CrawlBudget start(Site site) {
+        return new CrawlBudget(site.getMaxPages(), site.getMaxBytes(),
+                TimeUnit.MINUTES.toNanos(site.getMaxDurationMinutes()));
+    }
+
+    // Попытка загрузки страницы: ответ с телом размером bytes или 0 при коде ошибки и тайм-ауте.
+    // Неудачные загрузки тоже расходуют бюджет, иначе сайт из одних ошибок обходился бы без ограничения
+    public void fetchAttempted(long bytes) {
+        pages++;
+        this.bytes += bytes;
+    }
+
+    // Причина остановки обхода или null, если бюджет не исчерпан
+    public String exhausted() {
+        if (maxPages > 0 && pages >= maxPages) {
+            return "загружено страниц: " + pages;
+        }
+        if (maxBytes > 0 && bytes >= maxBytes) {
+            return "загружено байт: " + bytes;
+        }
+        if (maxNanos > 0 && System.nanoTime() - startedAt >= maxNanos) {
+            return "истекло время обхода: " + TimeUnit.NANOSECONDS.toMinutes(maxNanos) + " мин";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,187 @@
+package searchengine.crawl;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Очередь обхода сайта по важности страниц вместо порядка обнаружения.
+ * <p>
+ * Важность считается онлайн по схеме OPIC: у каждой страницы есть «запас» (cash). Загруженная
+ * страница делит свой запас поровну между ссылками, поэтому страница, на которую ссылаются многие
+ * важные страницы, быстро набирает запас. Главная страница получает {@link #INITIAL_CASH}, страницы
+ * из карты сайта делят между собой {@link #SITEMAP_CASH} пропорционально своему priority.
+ * Очередь упорядочена по запасу, уменьшенному с глубиной ссылки от главной; при равенстве раньше
+ * идёт страница, добавленная первой. Адрес выдаётся не больше одного раза, поэтому адреса должны
+ * приходить уже приведёнными {@link UrlCanonicalizer}.
+ */
+public final class CrawlFrontier {
+
+    public static final double INITIAL_CASH = 1.0;
+    public static final double SITEMAP_CASH = 1.0;
+
+    // Priority страницы карты без явного значения (по протоколу sitemaps — 0.5)
+    private static final double DEFAULT_SITEMAP_PRIORITY = 0.5;
+    // Во сколько раз уменьшается запас страниц карты, не изменявшихся с прошлого обхода
+    private static final double UNCHANGED_FACTOR = 0.5;
+    // Штраф за каждый уровень глубины: пагинация и списки тегов обычно глубже содержательных страниц
+    private static final double DEPTH_PENALTY = 0.5;
+
+    private static final Comparator<Node> BEST_FIRST = Comparator.comparingDouble(Node::score).reversed()
+            .thenComparingLong(node -> node.sequence);
+
+    private final int maxDepth;
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final TreeSet<Node> queue = new TreeSet<>(BEST_FIRST);
+    private long sequence;
+
+    // maxDepth — наибольшая глубина ссылки от главной страницы, 0 — без ограничения
+    public CrawlFrontier(int maxDepth) {
+        this.maxDepth = maxDepth <= 0 ? Integer.MAX_VALUE : maxDepth;
+    }
+
+    // Начальная страница обхода
+    public void addRoot(String url) {
+        enqueue(url, 0, INITIAL_CASH);
+    }
+
+    // Страницы карты сайта в порядке entries; unchanged — не изменялись после прошлого обхода.
+    // Считаются ссылками с главной страницы (глубина 1)
+    public void addSitemap(List<SitemapEntry> entries, List<Boolean> unchanged) {
+        double[] weights = new double[entries.size()];
+        double total = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            SitemapEntry entry = entries.get(i);
+            double weight = entry.hasPriority() ? entry.priority() : DEFAULT_SITEMAP_PRIORITY;
+            weights[i] = unchanged.get(i) ? weight * UNCHANGED_FACTOR : weight;
+            total += weights[i];
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            double cash = total > 0 ? SITEMAP_CASH * weights[i] / total : SITEMAP_CASH / entries.size();
+            enqueue(entries.get(i).url(), 1, cash);
+        }
+    }
+
+    // Лучшая страница очереди или null, если очередь пуста
+    public Candidate poll() {
+        Node node = queue.pollFirst();
+        if (node == null) {
+            return null;
+        }
+        node.queued = false;
+        Candidate candidate = new Candidate(node.url, node.depth, node.cash);
+        node.cash = 0;
+        return candidate;
+    }
+
+    // Ссылки загруженной страницы: её запас делится между ними поровну, новые адреса встают в очередь
+    public void linksFound(Candidate from, List<String> links) {
+        LinkedHashSet<String> distinct = new LinkedHashSet<>(links);
+        distinct.remove(from.url());
+        if (distinct.isEmpty() || from.depth() + 1 > maxDepth) {
+            return;
+        }
+        double share = from.cash() / distinct.size();
+        for (String url : distinct) {
+            Node node = nodes.get(url);
+            if (node == null) {
+                enqueue(url, from.depth() + 1, share);
+            } else if (node.queued) {
+                // Ключ сортировки меняется: страница переставляется в очереди
+                queue.remove(node);
+                node.cash += share;
+                node.depth = Math.min(node.depth, from.depth() + 1);
+                queue.add(node);
+            }
+        }
+    }
+
+    // Выданная страница from — копия страницы canonical (rel=canonical): её запас переходит канонической
+    // странице, которая встаёт в очередь, если ещё не известна. false — каноническая страница сама была
+    // отложена как копия (ссылки rel=canonical указывают друг на друга), и from нужно обработать как обычно
+    public boolean deferToCanonical(Candidate from, String canonical) {
+        Node target = nodes.get(canonical);
+        if (target != null && target.deferred) {
+            return false;
+        }
+        Node node = nodes.get(from.url());
+        if (node != null) {
+            node.deferred = true;
+        }
+        enqueue(canonical, from.depth(), from.cash());
+        return true;
+    }
+
+    // Содержимое адреса получено по редиректу с другого адреса: из очереди он убирается, новые ссылки
+    // на него не добавляют его снова. true — адрес уже был выдан раньше, и страница обработана
+    public boolean markFetched(String url) {
+        Node node = nodes.get(url);
+        if (node == null) {
+            node = new Node(url, 0, 0, sequence++);
+            node.queued = false;
+            nodes.put(url, node);
+            return false;
+        }
+        if (!node.queued) {
+            return true;
+        }
+        queue.remove(node);
+        node.queued = false;
+        return false;
+    }
+
+    // Известен ли адрес: в очереди или уже выдан
+    public boolean contains(String url) {
+        return nodes.containsKey(url);
+    }
+
+    // Число адресов в очереди
+    public int size() {
+        return queue.size();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    private void enqueue(String url, int depth, double cash) {
+        Node node = nodes.get(url);
+        if (node == null) {
+            node = new Node(url, depth, cash, sequence++);
+            nodes.put(url, node);
+            queue.add(node);
+        } else if (node.queued) {
+            queue.remove(node);
+            node.cash += cash;
+            node.depth = Math.min(node.depth, depth);
+            queue.add(node);
+        }
+    }
+
+    // Страница, выданная для загрузки; cash — её запас, который делится между ссылками
+    public record Candidate(String url, int depth, double cash) {
+    }
+
+    private static final class Node {
+        final String url;
+        final long sequence;
+        int depth;
+        double cash;
+        boolean queued = true;
+        boolean deferred;
+
+        Node(String url, int depth, double cash, long sequence) {
+            this.url = url;
+            this.depth = depth;
+            this.cash = cash;
+            this.sequence = sequence;
+        }
+
+        double score() {
+            return cash / (1 + DEPTH_PENALTY * depth);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package searchengine.crawl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Правила robots.txt для всех роботов (User-agent: *) и адреса карт сайта (Sitemap).
+ * Из подходящих правил действует самое длинное, при равной длине Allow важнее Disallow;
+ * в шаблонах поддерживаются * и $.
+ */
+public final class RobotsTxt {
+
+    public static final RobotsTxt ALLOW_ALL = new RobotsTxt(List.of(), List.of());
+
+    private final List<Rule> rules;
+    private final List<String> sitemaps;
+
+    private RobotsTxt(List<Rule> rules, List<String> sitemaps) {
+        this.rules = rules;
+        this.sitemaps = sitemaps;
+    }
+
+    public static RobotsTxt parse(String text) {
+        List<Rule> rules = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        boolean inAgents = false;   // Идут строки User-agent одной группы
+        boolean forAll = false;     // Текущая группа относится ко всем роботам
+        for (String rawLine : text.split("\r?\n|\r")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase();
+            String value = line.substring(colon + 1).trim();
+            switch (field) {
+                case "user-agent" -> {
+                    if (!inAgents) {
+                        forAll = false;
+                        inAgents = true;
+                    }
+                    forAll |= value.equals("*");
+                }
+                case "allow", "disallow" -> {
+                    inAgents = false;
+                    if (forAll && !value.isEmpty()) {
+                        rules.add(new Rule(field.equals("allow"), value.length(), compile(value)));
+                    }
+                }
+                case "sitemap" -> sitemaps.add(value);  // Не относится к группе
+                default -> inAgents = false;
+            }
+        }
+        return new RobotsTxt(List.copyOf(rules), List.copyOf(sitemaps));
+    }
+
+    public List<String> sitemaps() {
+        return sitemaps;
+    }
+
+    // Можно ли загружать адрес; url — полный адрес, правила применяются к пути с запросом
+    public boolean allows(String url) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+        String path;
+        try {
+            URI uri = URI.create(url);
+            path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) {
+                path += "?" + uri.getRawQuery();
+            }
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        Rule best = null;
+        for (Rule rule : rules) {
+            boolean better = best == null || rule.length() > best.length()
+                    || rule.length() == best.length() && rule.allow();
+            if (better && rule.pattern().matcher(path).lookingAt()) {
+                best = rule;
+            }
+        }
+        return best == null || best.allow();
+    }
+
+    // Шаблон пути: * — любая последовательность символов, $ в конце — конец адреса
+    private static Pattern compile(String value) {
+        boolean anchored = value.endsWith("$");
+        String body = anchored ? value.substring(0, value.length() - 1) : value;
+        StringBuilder regex = new StringBuilder();
+        for (String part : body.split("\\*", -1)) {
+            if (!regex.isEmpty()) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(part));
+        }
+        if (anchored) {
+            regex.append("$");
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private record Rule(boolean allow, int length, Pattern pattern) {
+    }
+}
@@ -0,0 +1,18 @@
+package searchengine.crawl;
+
+import java.time.Instant;
+
+/**
+ * Адрес из sitemap.xml с необязательными lastmod и priority.
+ *
+ * @param lastModified время изменения страницы или null, если не указано или не разобрано
+ * @param priority     приоритет 0..1 или {@link #NO_PRIORITY}
+ */
+public record SitemapEntry(String url, Instant lastModified, double priority) {
+
+    public static final double NO_PRIORITY = -1;
+
+    public boolean hasPriority() {
+        return priority >= 0;
+    }
+}
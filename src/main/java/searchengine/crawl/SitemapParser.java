@@ -0,0 +1,136 @@
+package searchengine.crawl;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Потоковый разбор sitemap.xml (StAX): адреса передаются по одному по мере чтения, поэтому
+ * карта на десятки тысяч адресов не загружается в память целиком. Понимает обычную карту
+ * (urlset) и индекс карт (sitemapindex), сжатые gzip карты распознаются по первым байтам.
+ */
+public final class SitemapParser {
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        // Внешние сущности и DTD не загружаются (XXE)
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    }
+
+    private SitemapParser() {
+    }
+
+    // urls получает адреса страниц и возвращает false, чтобы прекратить чтение; sitemaps — адреса вложенных карт
+    public static void parse(InputStream in, Predicate<SitemapEntry> urls, Consumer<String> sitemaps)
+            throws IOException {
+        InputStream input = decompressIfGzip(in);
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(input);
+            String loc = null;
+            String lastmod = null;
+            String priority = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (localName(reader)) {
+                        case "url", "sitemap" -> {
+                            loc = null;
+                            lastmod = null;
+                            priority = null;
+                        }
+                        case "loc" -> loc = reader.getElementText().trim();
+                        case "lastmod" -> lastmod = reader.getElementText().trim();
+                        case "priority" -> priority = reader.getElementText().trim();
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && loc != null && !loc.isEmpty()) {
+                    String name = localName(reader);
+                    if (name.equals("url")) {
+                        if (!urls.test(new SitemapEntry(loc, parseLastModified(lastmod), parsePriority(priority)))) {
+                            return;
+                        }
+                        loc = null;
+                    } else if (name.equals("sitemap")) {
+                        sitemaps.accept(loc);
+                        loc = null;
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Некорректный sitemap: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // Поток закрывает вызывающий
+                }
+            }
+        }
+    }
+
+    // Формат W3C Datetime: дата, дата и время с часовым поясом или без него (тогда UTC)
+    static Instant parseLastModified(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(value).toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    static double parsePriority(String value) {
+        if (value == null || value.isEmpty()) {
+            return SitemapEntry.NO_PRIORITY;
+        }
+        try {
+            double priority = Double.parseDouble(value);
+            return priority >= 0 && priority <= 1 ? priority : SitemapEntry.NO_PRIORITY;
+        } catch (NumberFormatException e) {
+            return SitemapEntry.NO_PRIORITY;
+        }
+    }
+
+    private static String localName(XMLStreamReader reader) {
+        String name = reader.getLocalName();
+        int colon = name.indexOf(':');
+        return colon >= 0 ? name.substring(colon + 1) : name;
+    }
+
+    // Сжатая карта (sitemap.xml.gz) отдаётся и как application/gzip, и как xml с Content-Encoding — смотрим на байты
+    private static InputStream decompressIfGzip(InputStream in) throws IOException {
+        BufferedInputStream buffered = in instanceof BufferedInputStream b ? b : new BufferedInputStream(in);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        return first == 0x1f && second == 0x8b ? new GZIPInputStream(buffered) : buffered;
+    }
+}
@@ -0,0 +1,240 @@
+package searchengine.crawl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Приведение адреса страницы к каноническому виду, чтобы варианты одного адреса обходились один раз.
+ * <p>
+ * Схема и хост — в нижнем регистре, порт по умолчанию убирается, путь очищается от «.», «..»,
+ * повторных «/» и сессионного «;jsessionid=». Завершающий «/» сохраняется как есть: сайты,
+ * у которых канонична форма со слешем, отвечали бы на адрес без него редиректом. Процентные
+ * последовательности записываются заглавными буквами, незарезервированные символы раскодируются,
+ * не-ASCII и пробелы кодируются в UTF-8. Из запроса удаляются игнорируемые параметры
+ * (метки рекламы, идентификаторы сессии), остальные сортируются. Фрагмент отбрасывается.
+ * Регистр пути и параметров сохраняется: для сервера это разные адреса.
+ */
+public final class UrlCanonicalizer {
+
+    // Параметры, не влияющие на содержимое; «*» в конце — префикс имени
+    public static final List<String> DEFAULT_IGNORED_PARAMS = List.of(
+            "utm_*", "gclid", "dclid", "fbclid", "msclkid", "yclid", "ymclid", "_openstat",
+            "mc_cid", "mc_eid", "_ga", "_gl", "igshid", "jsessionid", "phpsessid", "sessionid");
+
+    private static final Comparator<String[]> PARAM_ORDER = Comparator
+            .comparing((String[] param) -> param[0])
+            .thenComparing(param -> param[1] == null ? "" : param[1]);
+
+    private final Set<String> ignoredNames = new HashSet<>();
+    private final List<String> ignoredPrefixes = new ArrayList<>();
+
+    // ignoredParams — имена параметров без учёта регистра, «*» в конце — префикс
+    public UrlCanonicalizer(Collection<String> ignoredParams) {
+        for (String param : ignoredParams) {
+            String name = param.trim().toLowerCase(Locale.ROOT);
+            if (name.endsWith("*")) {
+                ignoredPrefixes.add(name.substring(0, name.length() - 1));
+            } else if (!name.isEmpty()) {
+                ignoredNames.add(name);
+            }
+        }
+    }
+
+    public UrlCanonicalizer() {
+        this(DEFAULT_IGNORED_PARAMS);
+    }
+
+    // Канонический адрес или null, если это не абсолютный адрес http(s)
+    public String canonicalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        String rest = url.trim();
+        int hash = rest.indexOf('#');
+        if (hash >= 0) {
+            rest = rest.substring(0, hash);
+        }
+        int schemeEnd = rest.indexOf("://");
+        if (schemeEnd <= 0) {
+            return null;
+        }
+        String scheme = rest.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            return null;
+        }
+        rest = rest.substring(schemeEnd + 3);
+
+        int authorityEnd = indexOfAny(rest, "/?");
+        String authority = authorityEnd < 0 ? rest : rest.substring(0, authorityEnd);
+        rest = authorityEnd < 0 ? "" : rest.substring(authorityEnd);
+        String hostPort = canonicalAuthority(authority, scheme);
+        if (hostPort == null) {
+            return null;
+        }
+
+        int queryStart = rest.indexOf('?');
+        String path = queryStart < 0 ? rest : rest.substring(0, queryStart);
+        String query = queryStart < 0 ? "" : rest.substring(queryStart + 1);
+
+        StringBuilder result = new StringBuilder(url.length())
+                .append(scheme).append("://").append(hostPort).append(canonicalPath(path));
+        String canonicalQuery = canonicalQuery(query);
+        if (!canonicalQuery.isEmpty()) {
+            result.append('?').append(canonicalQuery);
+        }
+        return result.toString();
+    }
+
+    // Хост без данных пользователя и точки в конце, порт — только отличный от порта схемы
+    private static String canonicalAuthority(String authority, String scheme) {
+        int at = authority.lastIndexOf('@');
+        if (at >= 0) {
+            authority = authority.substring(at + 1);
+        }
+        String host = authority;
+        String port = "";
+        int colon = authority.lastIndexOf(':');
+        if (colon >= 0 && colon > authority.lastIndexOf(']')) {
+            host = authority.substring(0, colon);
+            port = authority.substring(colon + 1);
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        while (host.endsWith(".")) {
+            host = host.substring(0, host.length() - 1);
+        }
+        if (host.isEmpty()) {
+            return null;
+        }
+        if (port.isEmpty()) {
+            return host;
+        }
+        if (!port.chars().allMatch(Character::isDigit) || port.length() > 5) {
+            return null;
+        }
+        int number = Integer.parseInt(port);
+        if (number > 65535) {
+            return null;
+        }
+        boolean defaultPort = scheme.equals("http") ? number == 80 : number == 443;
+        return defaultPort ? host : host + ":" + number;
+    }
+
+    private static String canonicalPath(String path) {
+        List<String> segments = new ArrayList<>();
+        boolean directory = false;  // Путь оканчивается на «/», «/.» или «/..»
+        for (String segment : path.split("/", -1)) {
+            int params = segment.toLowerCase(Locale.ROOT).indexOf(";jsessionid=");
+            if (params >= 0) {
+                segment = segment.substring(0, params);
+            }
+            segment = normalizeEncoding(segment);
+            directory = segment.isEmpty() || segment.equals(".") || segment.equals("..");
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (!segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+                continue;
+            }
+            segments.add(segment);
+        }
+        String joined = "/" + String.join("/", segments);
+        return directory && !segments.isEmpty() ? joined + "/" : joined;
+    }
+
+    private String canonicalQuery(String query) {
+        List<String[]> params = new ArrayList<>();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = normalizeEncoding(eq < 0 ? pair : pair.substring(0, eq));
+            String value = eq < 0 ? null : normalizeEncoding(pair.substring(eq + 1));
+            if (!name.isEmpty() && !isIgnored(name)) {
+                params.add(new String[] {name, value});
+            }
+        }
+        params.sort(PARAM_ORDER);
+        StringBuilder result = new StringBuilder();
+        for (String[] param : params) {
+            if (!result.isEmpty()) {
+                result.append('&');
+            }
+            result.append(param[0]);
+            if (param[1] != null) {
+                result.append('=').append(param[1]);
+            }
+        }
+        return result.toString();
+    }
+
+    private boolean isIgnored(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (ignoredNames.contains(lower)) {
+            return true;
+        }
+        for (String prefix : ignoredPrefixes) {
+            if (lower.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Единая запись процентных последовательностей; «+» в запросе не трогается — это пробел формы
+    private static String normalizeEncoding(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '%' && i + 2 < text.length() && isHex(text.charAt(i + 1)) && isHex(text.charAt(i + 2))) {
+                int decoded = Integer.parseInt(text.substring(i + 1, i + 3), 16);
+                if (isUnreserved(decoded)) {
+                    result.append((char) decoded);
+                } else {
+                    result.append('%').append(text.substring(i + 1, i + 3).toUpperCase(Locale.ROOT));
+                }
+                i += 3;
+                continue;
+            }
+            int codePoint = text.codePointAt(i);
+            if (codePoint > 0x7E || codePoint <= 0x20 || c == '%' || c == '"' || c == '<' || c == '>'
+                    || c == '\\' || c == '^' || c == '`' || c == '{' || c == '|' || c == '}') {
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    result.append('%').append(String.format("%02X", b & 0xFF));
+                }
+            } else {
+                result.append(c);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return result.toString();
+    }
+
+    private static boolean isHex(char c) {
+        return Character.digit(c, 16) >= 0;
+    }
+
+    private static boolean isUnreserved(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static int indexOfAny(String text, String chars) {
+        for (int i = 0; i < text.length(); i++) {
+            if (chars.indexOf(text.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,13 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Одно событие потока /api/indexing/progress
+@Data
+public class IndexingProgress {
+    private long time;
+    private boolean indexing;
+    private List<SiteProgress> sites;
+}
@@ -0,0 +1,27 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class SearchIndexStatistics {
+    private boolean ready;
+    private int shards;
+    private int segments;
+    private long indexBytes;
+    private int pages;
+    private long terms;
+    private long postings;
+    private double bytesPerPosting;
+    private long lastRefreshMs;
+    private double queryP50Ms;
+    private double queryP99Ms;
+    private int cacheEntries;
+    private long cacheHits;
+    private long cacheMisses;
+    private double cacheHitRate;
+    private int searchesInFlight;
+    private int searchesQueued;
+    private long searchesRejected;
+    private long searchesExpired;
+    private long searchesTruncated;
+}
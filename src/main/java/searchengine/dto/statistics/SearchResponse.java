@@ -1,16 +1,26 @@
 package searchengine.dto.statistics;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.util.List;
 
 @Data
-@AllArgsConstructor
+@NoArgsConstructor
 public class SearchResponse {
 
     private boolean result;
     private String error;
     private int count;
     private List<SearchResult> data;
+    private boolean partial; // Часть шардов не ответила к сроку, выдача неполная
+    private String didYouMean; // Запрос с исправленными опечатками, если они были
+    private String nextCursor; // Курсор следующей страницы выдачи или null, если она последняя
+
+    public SearchResponse(boolean result, String error, int count, List<SearchResult> data) {
+        this.result = result;
+        this.error = error;
+        this.count = count;
+        this.data = data;
+    }
 }
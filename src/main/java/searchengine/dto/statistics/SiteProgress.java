@@ -0,0 +1,20 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class SiteProgress {
+    private String url;
+    private String name;
+    private boolean running;
+    private long pagesFetched;
+    private double pagesPerSecond;     // За последний интервал
+    private int frontier;              // Адресов в очереди обхода
+    private Map<Integer, Long> errors; // Ошибки загрузки по HTTP-коду, 0 — сетевая ошибка
+    private int backlog;               // Страниц до конца обхода: очередь и загруженные, но ещё не записанные
+    private double backlogSeconds;     // Оценка времени до конца обхода при текущей скорости, 0 — неизвестно
+    private double lemmatizationMs;    // Среднее время этапа на страницу
+    private double persistenceMs;
+}
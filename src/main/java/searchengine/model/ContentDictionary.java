@@ -0,0 +1,29 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Словарь Deflate, обученный по первым страницам сайта. Не изменяется после создания:
+// страницы ссылаются на него по id, и без него их тело не распаковать
+@Entity
+@Table(name = "content_dictionary", indexes = @Index(name = "idx_content_dictionary_site", columnList = "site_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentDictionary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
+    // Не больше 32 КБ (окно Deflate)
+    @Column(name = "data", columnDefinition = "BLOB", nullable = false)
+    private byte[] data;
+}
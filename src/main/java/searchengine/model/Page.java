@@ -35,7 +35,8 @@ public class Page {
     @Column(name = "code", nullable = false)
     private int code;
 
-    // Page content stored as MEDIUMTEXT
-    @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
+    // HTML страниц, сохранённых до появления page_content. Новые страницы хранят тело сжатым
+    // в PageContent, старые переносятся туда при запуске (PageContentService)
+    @Column(columnDefinition = "MEDIUMTEXT")
     private String content;
 }
\ No newline at end of file
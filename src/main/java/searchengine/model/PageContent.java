@@ -0,0 +1,42 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// HTML страницы в сжатом виде. Хранится отдельно от page, поэтому загрузка страниц не читает
+// тело, а распаковка выполняется только когда оно действительно нужно (PageContentService)
+@Entity
+@Table(name = "page_content")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PageContent {
+
+    @Id
+    @Column(name = "page_id")
+    private Long pageId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "page_id")
+    @OnDelete(action = OnDeleteAction.CASCADE) // Удаляется вместе со страницей
+    private Page page;
+
+    // Словарь сайта, с которым сжато тело, или null, если сжато без словаря
+    @Column(name = "dictionary_id")
+    private Long dictionaryId;
+
+    // Длина HTML в символах
+    @Column(name = "length", nullable = false)
+    private int length;
+
+    // HTML, сжатый TextCompression
+    @Column(name = "data", columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] data;
+}
@@ -0,0 +1,56 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Всё, что нужно для строки выдачи, без HTML страницы: адрес, заголовок, описание,
+// сжатый текст и позиции слов, по которым строится сниппет
+@Entity
+@Table(name = "page_projection")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PageProjection {
+
+    @Id
+    @Column(name = "page_id")
+    private Long pageId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "page_id")
+    @OnDelete(action = OnDeleteAction.CASCADE) // Удаляется вместе со страницей
+    private Page page;
+
+    // Id сайта без связи с сущностью: выдача не загружает страницы
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
+    @Column(name = "path", length = 512, nullable = false)
+    private String path;
+
+    @Column(name = "title", length = 1024)
+    private String title;
+
+    // Содержимое meta name="description"
+    @Column(name = "description", length = 1024)
+    private String description;
+
+    // Длина текста страницы в символах
+    @Column(name = "text_length", nullable = false)
+    private int textLength;
+
+    // Текст страницы без разметки, сжатый TextCompression
+    @Column(name = "text", columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] text;
+
+    // Позиции слов в формате TokenOffsets
+    @Column(name = "tokens", columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] tokens;
+}
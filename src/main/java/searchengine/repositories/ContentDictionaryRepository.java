@@ -0,0 +1,14 @@
+package searchengine.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import searchengine.model.ContentDictionary;
+
+import java.util.Optional;
+
+public interface ContentDictionaryRepository extends JpaRepository<ContentDictionary, Long> {
+
+    // Последний обученный словарь сайта
+    Optional<ContentDictionary> findFirstBySiteIdOrderByIdDesc(Long siteId);
+
+    void deleteBySiteId(Long siteId);
+}
@@ -1,7 +1,40 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import searchengine.model.Index;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface IndexRepository extends JpaRepository<Index, Integer> {
+
+    // Идентификаторы страниц, на которых встречается лемма
+    @Query("select distinct i.page.id from Index i where i.lemma.id in :lemmaIds")
+    List<Long> findPageIdsByLemmaIds(@Param("lemmaIds") Collection<Integer> lemmaIds);
+
+    // То же, но только по страницам указанного сайта
+    @Query("select distinct i.page.id from Index i where i.lemma.id in :lemmaIds and i.page.site.id = :siteId")
+    List<Long> findPageIdsByLemmaIdsAndSiteId(@Param("lemmaIds") Collection<Integer> lemmaIds,
+                                              @Param("siteId") Long siteId);
+
+    // Пересечение: из переданных страниц оставляем те, на которых встречается лемма
+    @Query("select distinct i.page.id from Index i where i.lemma.id in :lemmaIds and i.page.id in :pageIds")
+    List<Long> findPageIdsByLemmaIdsAmong(@Param("lemmaIds") Collection<Integer> lemmaIds,
+                                          @Param("pageIds") Collection<Long> pageIds);
+
+    // Ранги лемм на переданных страницах для расчёта релевантности
+    @Query("select i.page.id as pageId, i.lemma.lemma as lemma, i.rank as rank from Index i " +
+            "where i.lemma.id in :lemmaIds and i.page.id in :pageIds")
+    List<LemmaRank> findRanks(@Param("lemmaIds") Collection<Integer> lemmaIds,
+                              @Param("pageIds") Collection<Long> pageIds);
+
+    interface LemmaRank {
+        Long getPageId();
+
+        String getLemma();
+
+        Float getRank();
+    }
 }
@@ -3,6 +3,12 @@ package searchengine.repositories;
 import org.springframework.data.jpa.repository.JpaRepository;
 import searchengine.model.Lemma;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface LemmaRepository extends JpaRepository<Lemma, Integer> {
     Lemma findByLemma(String lemma);
+
+    // Все строки для набора лемм (одна лемма может храниться отдельно для каждого сайта)
+    List<Lemma> findByLemmaIn(Collection<String> lemmas);
 }
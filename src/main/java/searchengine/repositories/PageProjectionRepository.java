@@ -0,0 +1,7 @@
+package searchengine.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import searchengine.model.PageProjection;
+
+public interface PageProjectionRepository extends JpaRepository<PageProjection, Long> {
+}
@@ -0,0 +1,162 @@
+package searchengine.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Поиск k самых релевантных страниц, содержащих все леммы запроса.
+ * <p>
+ * Ведущим становится самый короткий список, остальные курсоры догоняют его через
+ * {@link PostingCursor#advance(int)}. Когда куча заполнена, по максимальным рангам блоков
+ * оценивается сверху релевантность страниц до конца текущих блоков; если оценка не превышает
+ * худшую страницу кучи, блоки пропускаются без распаковки (block-max WAND для конъюнкции).
+ * Пока не найдено {@link #TOTAL_HITS_THRESHOLD} страниц, блоки не пропускаются, чтобы
+ * число найденных страниц было точным. Условия на позиции лемм проверяются последними,
+ * поэтому позиции распаковываются только для страниц со всеми леммами запроса.
+ */
+public final class BlockMaxConjunction {
+
+    public static final int TOTAL_HITS_THRESHOLD = 1000;
+
+    // Бюджет и прерывание проверяются раз в 4096 шагов по кандидатам ведущего списка
+    private static final int BUDGET_CHECK_MASK = 4095;
+
+    private BlockMaxConjunction() {
+    }
+
+    public static TopHits search(List<ScoredTerm> terms, IntPredicate docFilter, PositionMatcher positionMatcher,
+                                 IntUnaryOperator pageLength, Bm25 bm25, int k) {
+        return search(terms, docFilter, positionMatcher, pageLength, bm25, k, null, SearchBudget.UNLIMITED);
+    }
+
+    // Лучшие k страниц среди идущих в выдаче после курсора after; число найденных страниц считается по всем.
+    // Исчерпав бюджет, поиск останавливается и возвращает лучшие из просмотренных страниц
+    public static TopHits search(List<ScoredTerm> terms, IntPredicate docFilter, PositionMatcher positionMatcher,
+                                 IntUnaryOperator pageLength, Bm25 bm25, int k, TopKCollector.ScoredPage after,
+                                 SearchBudget budget) {
+        ScoredTerm[] sorted = terms.stream()
+                .sorted(Comparator.comparingInt(term -> term.postings().size()))
+                .toArray(ScoredTerm[]::new);
+        PostingCursor[] cursors = Arrays.stream(sorted).map(term -> term.postings().cursor()).toArray(PostingCursor[]::new);
+        double[] idf = Arrays.stream(sorted).mapToDouble(ScoredTerm::idf).toArray();
+        Map<String, PostingCursor> cursorByLemma = new HashMap<>();
+        for (int i = 0; i < sorted.length; i++) {
+            cursorByLemma.put(sorted[i].lemma(), cursors[i]);
+        }
+        Function<String, int[]> positions = lemma -> cursorByLemma.get(lemma).positions();
+
+        TopKCollector top = new TopKCollector(k, after);
+        int totalHits = 0;
+        boolean skipped = false;
+        boolean truncated = false;
+
+        PostingCursor lead = cursors[0];
+        int doc = lead.nextDoc();
+        int steps = 0;
+        candidates:
+        while (doc != PostingCursor.NO_MORE_DOCS) {
+            // Отменённый (прерванный поток) или исчерпавший бюджет поиск завершается, не дочитывая списки
+            if ((++steps & BUDGET_CHECK_MASK) == 0
+                    && (Thread.currentThread().isInterrupted() || !budget.consume(BUDGET_CHECK_MASK + 1))) {
+                skipped = true;
+                truncated = true;
+                break;
+            }
+            if (totalHits >= TOTAL_HITS_THRESHOLD && top.isFull()) {
+                double bound = 0;
+                int blockEnd = PostingCursor.NO_MORE_DOCS;
+                for (int i = 0; i < cursors.length; i++) {
+                    int end = cursors[i].advanceShallow(doc);
+                    if (end == PostingCursor.NO_MORE_DOCS) {
+                        break candidates; // В одном из списков не осталось страниц
+                    }
+                    bound += bm25.upperBound(cursors[i].blockMaxRank(), idf[i]);
+                    blockEnd = Math.min(blockEnd, end);
+                }
+                if (bound <= top.minScore()) {
+                    // Ни одна страница до конца ближайшего блока не попадёт в кучу
+                    skipped = true;
+                    doc = lead.advance(blockEnd + 1);
+                    continue;
+                }
+            }
+            // Фильтр (например, по сайту) проверяется до обращения к остальным спискам
+            if (!docFilter.test(doc)) {
+                doc = lead.nextDoc();
+                continue;
+            }
+            for (int i = 1; i < cursors.length; i++) {
+                int other = cursors[i].advance(doc);
+                if (other > doc) {
+                    doc = lead.advance(other);
+                    continue candidates;
+                }
+            }
+            if (positionMatcher != PositionMatcher.NONE && !positionMatcher.matches(positions)) {
+                doc = lead.nextDoc();
+                continue;
+            }
+            totalHits++;
+            int length = pageLength.applyAsInt(doc);
+            double score = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                score += bm25.score(cursors[i].rank(), length, idf[i]);
+            }
+            top.offer(doc, score);
+            doc = lead.nextDoc();
+        }
+        if (!truncated) {
+            // Остаток шагов после последней проверки, иначе короткие запросы учитывались бы как нулевые
+            budget.consume(steps & BUDGET_CHECK_MASK);
+        }
+        return new TopHits(top.sorted(), totalHits, !skipped, truncated);
+    }
+
+    // Лемма, список её страниц и обратная частота
+    public record ScoredTerm(String lemma, Postings postings, double idf) {
+    }
+
+    // Лучшие страницы по убыванию релевантности и число найденных страниц
+    // (при exact == false — оценка снизу); truncated — поиск остановлен до конца списков по сроку или бюджету
+    public record TopHits(List<TopKCollector.ScoredPage> pages, int totalHits, boolean exact, boolean truncated) {
+
+        public TopHits(List<TopKCollector.ScoredPage> pages, int totalHits, boolean exact) {
+            this(pages, totalHits, exact, false);
+        }
+
+        // k-путевое слияние отсортированных результатов шардов через кучу их первых элементов
+        public static TopHits merge(List<TopHits> parts, int k) {
+            PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> TopKCollector.BEST_FIRST.compare(
+                    parts.get(a[0]).pages().get(a[1]), parts.get(b[0]).pages().get(b[1])));
+            int totalHits = 0;
+            boolean exact = true;
+            boolean truncated = false;
+            for (int i = 0; i < parts.size(); i++) {
+                totalHits += parts.get(i).totalHits();
+                exact &= parts.get(i).exact();
+                truncated |= parts.get(i).truncated();
+                if (!parts.get(i).pages().isEmpty()) {
+                    heads.add(new int[]{i, 0});
+                }
+            }
+            List<TopKCollector.ScoredPage> pages = new ArrayList<>(Math.min(k, 1024));
+            while (pages.size() < k && !heads.isEmpty()) {
+                int[] head = heads.poll();
+                List<TopKCollector.ScoredPage> part = parts.get(head[0]).pages();
+                pages.add(part.get(head[1]));
+                if (head[1] + 1 < part.size()) {
+                    heads.add(new int[]{head[0], head[1] + 1});
+                }
+            }
+            return new TopHits(pages, totalHits, exact, truncated);
+        }
+    }
+}
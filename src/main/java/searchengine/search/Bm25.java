@@ -0,0 +1,43 @@
+package searchengine.search;
+
+/**
+ * Формула релевантности BM25: частота леммы на странице (ранг), число страниц с леммой
+ * и длина страницы относительно средней.
+ */
+public final class Bm25 {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private final double averageLength;
+    private final double b;
+
+    private Bm25(double averageLength, double b) {
+        this.averageLength = averageLength > 0 ? averageLength : 1;
+        this.b = b;
+    }
+
+    public static Bm25 of(double averageLength) {
+        return new Bm25(averageLength, B);
+    }
+
+    // Без нормализации по длине, когда длины страниц неизвестны
+    public static Bm25 withoutLengthNorm() {
+        return new Bm25(1, 0);
+    }
+
+    // Обратная частота леммы: чем реже лемма, тем больше её вес
+    public static double idf(long docFrequency, long docCount) {
+        return Math.log(1 + (docCount - docFrequency + 0.5) / (docFrequency + 0.5));
+    }
+
+    public double score(int tf, int length, double idf) {
+        double norm = K1 * (1 - b + b * length / averageLength);
+        return idf * tf * (K1 + 1) / (tf + norm);
+    }
+
+    // Оценка сверху для частоты не больше maxTf: вклад растёт с tf и максимален на самой короткой странице
+    public double upperBound(int maxTf, double idf) {
+        return idf * maxTf * (K1 + 1) / (maxTf + K1 * (1 - b));
+    }
+}
@@ -0,0 +1,69 @@
+package searchengine.search;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Обучение словаря Deflate по образцам страниц одного сайта. Страницы сайта собраны из одних
+ * шаблонов: шапка, меню, подвал и скрипты повторяются почти дословно. Такие строки записываются
+ * в словарь, и уже первая страница сжимается ссылками на него, а не только на саму себя.
+ */
+public final class CompressionDictionary {
+
+    // Deflate ссылается не дальше 32 КБ назад, больший словарь бесполезен
+    public static final int MAX_SIZE = 32 * 1024;
+
+    // Короткие строки дешевле закодировать заново, чем ссылкой
+    private static final int MIN_LINE_LENGTH = 8;
+
+    private CompressionDictionary() {
+    }
+
+    // Словарь из строк, встречающихся хотя бы в двух образцах; пустой массив, если общих строк нет
+    public static byte[] train(List<String> samples, int maxSize) {
+        int limit = Math.min(Math.max(0, maxSize), MAX_SIZE);
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (String sample : samples) {
+            Set<String> lines = new HashSet<>();
+            for (String line : sample.split("\n")) {
+                String trimmed = line.strip();
+                if (trimmed.length() >= MIN_LINE_LENGTH) {
+                    lines.add(trimmed);
+                }
+            }
+            for (String line : lines) {
+                documentFrequency.merge(line, 1, Integer::sum);
+            }
+        }
+
+        // Выгоднее всего строки, которые длинные и встречаются на многих страницах
+        List<Map.Entry<String, Integer>> shared = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : documentFrequency.entrySet()) {
+            if (entry.getValue() >= 2) {
+                shared.add(entry);
+            }
+        }
+        shared.sort(Comparator.<Map.Entry<String, Integer>>comparingLong(
+                        entry -> (long) entry.getValue() * entry.getKey().length()).reversed()
+                .thenComparing(Map.Entry::getKey));
+
+        List<byte[]> chosen = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : shared) {
+            byte[] line = (entry.getKey() + "\n").getBytes(StandardCharsets.UTF_8);
+            if (size + line.length > limit) {
+                continue;
+            }
+            chosen.add(line);
+            size += line.length;
+        }
+
+        // Ближние к концу словаря ссылки кодируются короче, поэтому самые выгодные строки идут последними
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            out.writeBytes(chosen.get(i));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,106 @@
+package searchengine.search;
+
+import java.util.List;
+
+/**
+ * Списки одной леммы из нескольких сегментов. Сегменты покрывают возрастающие
+ * непересекающиеся диапазоны id страниц, поэтому их списки достаточно читать подряд.
+ */
+public final class ConcatenatedPostings implements Postings {
+
+    private final List<PostingList> parts;
+    private final int size;
+    private final int maxRank;
+
+    public ConcatenatedPostings(List<PostingList> parts) {
+        this.parts = parts;
+        this.size = parts.stream().mapToInt(PostingList::size).sum();
+        this.maxRank = parts.stream().mapToInt(PostingList::maxRank).max().orElse(0);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PostingCursor cursor() {
+        return new Cursor();
+    }
+
+    private final class Cursor implements PostingCursor {
+
+        private int part;
+        private PostingCursor current = parts.get(0).cursor();
+        private int doc = -1;
+
+        @Override
+        public int docId() {
+            return doc;
+        }
+
+        @Override
+        public int rank() {
+            return current.rank();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int maxRank() {
+            return maxRank;
+        }
+
+        // Части, в которых все страницы меньше target, пропускаются: дальше курсор читается только вперёд
+        @Override
+        public int advanceShallow(int target) {
+            int blockEnd = current.advanceShallow(target);
+            while (blockEnd == NO_MORE_DOCS && nextPart()) {
+                blockEnd = current.advanceShallow(target);
+            }
+            return blockEnd;
+        }
+
+        @Override
+        public int blockMaxRank() {
+            return current.blockMaxRank();
+        }
+
+        @Override
+        public int[] positions() {
+            return current.positions();
+        }
+
+        @Override
+        public int nextDoc() {
+            doc = current.nextDoc();
+            while (doc == NO_MORE_DOCS && nextPart()) {
+                doc = current.nextDoc();
+            }
+            return doc;
+        }
+
+        @Override
+        public int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+            doc = current.advance(target);
+            while (doc == NO_MORE_DOCS && nextPart()) {
+                doc = current.advance(target);
+            }
+            return doc;
+        }
+
+        private boolean nextPart() {
+            if (part + 1 >= parts.size()) {
+                return false;
+            }
+            current = parts.get(++part).cursor();
+            return true;
+        }
+    }
+}
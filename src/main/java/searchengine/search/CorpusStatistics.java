@@ -0,0 +1,85 @@
+package searchengine.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок статистики корпуса: число страниц, их суммарная длина
+ * и число страниц с каждой леммой по сайтам. Снимок заменяется целиком,
+ * поэтому все значения, прочитанные из одного снимка, согласованы между собой.
+ */
+public final class CorpusStatistics {
+
+    public static final CorpusStatistics EMPTY = new CorpusStatistics(Map.of());
+
+    private final Map<Integer, SiteStatistics> sites;
+    private final int pageCount;
+    private final long totalLength;
+
+    public CorpusStatistics(Map<Integer, SiteStatistics> sites) {
+        this.sites = Map.copyOf(sites);
+        this.pageCount = sites.values().stream().mapToInt(SiteStatistics::pages).sum();
+        this.totalLength = sites.values().stream().mapToLong(SiteStatistics::totalLength).sum();
+    }
+
+    // Количество страниц всего корпуса (siteId == 0) или одного сайта
+    public int pageCount(int siteId) {
+        if (siteId == 0) {
+            return pageCount;
+        }
+        SiteStatistics site = sites.get(siteId);
+        return site == null ? 0 : site.pages();
+    }
+
+    // Средняя длина страницы в леммах с учётом повторов
+    public double averagePageLength(int siteId) {
+        int pages = pageCount(siteId);
+        long length = siteId == 0 ? totalLength : sites.getOrDefault(siteId, SiteStatistics.EMPTY).totalLength();
+        return pages == 0 ? 0 : (double) length / pages;
+    }
+
+    // Количество страниц всего корпуса (siteId == 0) или одного сайта, на которых встречается лемма
+    public long documentFrequency(String lemma, int siteId) {
+        if (siteId != 0) {
+            return sites.getOrDefault(siteId, SiteStatistics.EMPTY).documentFrequency().getOrDefault(lemma, 0);
+        }
+        long frequency = 0;
+        for (SiteStatistics site : sites.values()) {
+            frequency += site.documentFrequency().getOrDefault(lemma, 0);
+        }
+        return frequency;
+    }
+
+    public Map<Integer, SiteStatistics> sites() {
+        return sites;
+    }
+
+    // Снимок, в котором статистика сайта заменена (null — сайт удалён)
+    public CorpusStatistics withSite(int siteId, SiteStatistics site) {
+        Map<Integer, SiteStatistics> copy = new HashMap<>(sites);
+        if (site == null) {
+            copy.remove(siteId);
+        } else {
+            copy.put(siteId, site);
+        }
+        return new CorpusStatistics(copy);
+    }
+
+    /**
+     * Статистика одного сайта. Карта частот не изменяется после публикации снимка.
+     */
+    public record SiteStatistics(int pages, long totalLength, Map<String, Integer> documentFrequency) {
+
+        static final SiteStatistics EMPTY = new SiteStatistics(0, 0, Map.of());
+
+        // Новая статистика с добавленными (удалёнными при отрицательных значениях) страницами;
+        // исходная карта частот копируется, леммы с нулевой частотой убираются
+        public SiteStatistics plus(int addedPages, long addedLength, Map<String, Integer> addedFrequency) {
+            Map<String, Integer> frequency = new HashMap<>(documentFrequency);
+            addedFrequency.forEach((lemma, count) -> frequency.merge(lemma, count,
+                    (current, added) -> current + added > 0 ? current + added : null));
+            frequency.values().removeIf(count -> count <= 0);
+            return new SiteStatistics(pages + addedPages, totalLength + addedLength, frequency);
+        }
+    }
+}
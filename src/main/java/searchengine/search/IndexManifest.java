@@ -0,0 +1,74 @@
+package searchengine.search;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Описание текущего состояния индекса на диске: список сегментов и файл удалённых страниц.
+ * Манифест перезаписывается атомарно; файлы, на которые он не ссылается, можно удалять.
+ */
+public record IndexManifest(long generation, long nextSegment, List<String> segments, String deletes) {
+
+    public static final String FILE_NAME = "manifest.properties";
+
+    public static final IndexManifest EMPTY = new IndexManifest(0, 1, List.of(), null);
+
+    public static IndexManifest read(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return EMPTY;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        String segments = properties.getProperty("segments", "");
+        String deletes = properties.getProperty("deletes", "");
+        return new IndexManifest(
+                Long.parseLong(properties.getProperty("generation")),
+                Long.parseLong(properties.getProperty("nextSegment")),
+                segments.isEmpty() ? List.of() : Arrays.asList(segments.split(",")),
+                deletes.isEmpty() ? null : deletes);
+    }
+
+    public void write(Path directory) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("generation", Long.toString(generation));
+        properties.setProperty("nextSegment", Long.toString(nextSegment));
+        properties.setProperty("segments", String.join(",", segments));
+        properties.setProperty("deletes", deletes == null ? "" : deletes);
+
+        Path temporary = directory.resolve(FILE_NAME + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary)) {
+            properties.store(writer, "search index manifest");
+        }
+        Files.move(temporary, directory.resolve(FILE_NAME),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static BitSet readDeletes(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return BitSet.valueOf(words);
+        }
+    }
+
+    public static void writeDeletes(Path file, BitSet deleted) throws IOException {
+        long[] words = deleted.toLongArray();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+}
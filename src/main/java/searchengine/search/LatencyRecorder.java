@@ -0,0 +1,37 @@
+package searchengine.search;
+
+import java.util.Arrays;
+
+/**
+ * Кольцевой буфер последних измерений времени выполнения для расчёта перцентилей.
+ */
+public final class LatencyRecorder {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    // Перцентиль (0..100) по последним измерениям в миллисекундах
+    public double percentileMillis(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return 0;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
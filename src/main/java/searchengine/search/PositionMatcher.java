@@ -0,0 +1,64 @@
+package searchengine.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Условие на взаимное расположение лемм на странице (фраза, NEAR/k).
+ * Проверяется только для страниц, на которых уже есть все леммы запроса.
+ */
+public interface PositionMatcher {
+
+    PositionMatcher NONE = positions -> true;
+
+    // positions возвращает номера слов леммы на проверяемой странице по возрастанию
+    boolean matches(Function<String, int[]> positions);
+
+    static PositionMatcher all(List<PositionMatcher> matchers) {
+        if (matchers.isEmpty()) {
+            return NONE;
+        }
+        return positions -> matchers.stream().allMatch(matcher -> matcher.matches(positions));
+    }
+
+    // Леммы идут подряд; offsets — номера слов во фразе (стоп-слова оставляют пропуски)
+    static PositionMatcher phrase(List<String> lemmas, int[] offsets) {
+        return positions -> {
+            int[][] lists = lemmas.stream().map(positions).toArray(int[][]::new);
+            for (int start : lists[0]) {
+                boolean found = true;
+                for (int i = 1; i < lists.length && found; i++) {
+                    found = Arrays.binarySearch(lists[i], start - offsets[0] + offsets[i]) >= 0;
+                }
+                if (found) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    // Леммы в любом порядке не дальше distance слов друг от друга
+    static PositionMatcher near(String left, String right, int distance) {
+        return positions -> {
+            int[] a = positions.apply(left);
+            int[] b = positions.apply(right);
+            boolean same = left.equals(right);
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                int gap = Math.abs(a[i] - b[j]);
+                if (gap <= distance && (gap > 0 || !same)) {
+                    return true;
+                }
+                if (a[i] < b[j] || (same && a[i] == b[j])) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return false;
+        };
+    }
+}
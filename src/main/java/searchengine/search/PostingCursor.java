@@ -0,0 +1,36 @@
+package searchengine.search;
+
+/**
+ * Курсор по списку страниц в порядке возрастания id. Не потокобезопасен.
+ */
+public interface PostingCursor {
+
+    int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    // Текущая страница: -1 до первого вызова nextDoc, NO_MORE_DOCS после конца списка
+    int docId();
+
+    // Квантованный ранг леммы на текущей странице
+    int rank();
+
+    // Количество записей в списке
+    int size();
+
+    // Наибольший ранг во всём списке
+    int maxRank();
+
+    // Переход к блоку, который может содержать target, без распаковки записей.
+    // Возвращает последний id этого блока или NO_MORE_DOCS, если таких страниц нет
+    int advanceShallow(int target);
+
+    // Наибольший ранг в блоке, выбранном последним вызовом advanceShallow или advance
+    int blockMaxRank();
+
+    // Позиции леммы (номера слов) на текущей странице по возрастанию; распаковываются при вызове
+    int[] positions();
+
+    int nextDoc();
+
+    // Переход к первой странице с id не меньше target
+    int advance(int target);
+}
@@ -0,0 +1,277 @@
+package searchengine.search;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Сжатый список страниц одной леммы (postings).
+ * <p>
+ * Формат буфера:
+ * <pre>
+ * int size, int blockCount, int maxRank, int positionsStart,
+ * blockCount × (int lastDocId, int dataOffset, int positionsOffset, byte maxRank),
+ * данные:  для каждой записи varint(разность id) и байт квантованного ранга,
+ * позиции: для каждой записи varint(длина в байтах), varint(count), count × varint(разность позиции)
+ * </pre>
+ * Записи разбиты на блоки по {@link #BLOCK_SIZE}; таблица блоков позволяет
+ * перескакивать к нужному id галопирующим поиском без распаковки лишних записей,
+ * а максимальный ранг блока — оценивать сверху вклад блока в релевантность.
+ * Позиции лежат отдельно от данных и распаковываются только по запросу:
+ * позиции пропущенных записей перешагиваются по их длине.
+ * Все чтения из буфера абсолютные, поэтому один список можно читать из нескольких потоков.
+ */
+public final class PostingList implements Postings {
+
+    public static final int BLOCK_SIZE = 128;
+
+    static final int HEADER_BYTES = 16;
+    static final int SKIP_ENTRY_BYTES = 13;
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int blockCount;
+    private final int maxRank;
+    private final int dataStart;
+    private final int positionsStart;
+
+    public PostingList(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(0);
+        this.blockCount = buffer.getInt(4);
+        this.maxRank = buffer.getInt(8);
+        this.dataStart = HEADER_BYTES + blockCount * SKIP_ENTRY_BYTES;
+        this.positionsStart = dataStart + buffer.getInt(12);
+    }
+
+    // Количество страниц, на которых встречается лемма
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Наибольший ранг в списке: для оценки сверху вклада леммы в релевантность
+    public int maxRank() {
+        return maxRank;
+    }
+
+    // Объём списка в байтах
+    public int sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    // Содержимое списка для записи в сегмент
+    ByteBuffer bytes() {
+        return buffer.duplicate();
+    }
+
+    @Override
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Ранг хранится одним байтом: количество вхождений леммы насыщается на 255
+    static int quantizeRank(float rank) {
+        return Math.max(1, Math.min(255, Math.round(rank)));
+    }
+
+    private int blockLastDoc(int block) {
+        return buffer.getInt(HEADER_BYTES + block * SKIP_ENTRY_BYTES);
+    }
+
+    private int blockOffset(int block) {
+        return buffer.getInt(HEADER_BYTES + block * SKIP_ENTRY_BYTES + 4);
+    }
+
+    private int blockPositionsOffset(int block) {
+        return buffer.getInt(HEADER_BYTES + block * SKIP_ENTRY_BYTES + 8);
+    }
+
+    private int blockMaxRank(int block) {
+        return buffer.get(HEADER_BYTES + block * SKIP_ENTRY_BYTES + 12) & 0xFF;
+    }
+
+    /**
+     * Курсор для последовательного чтения списка.
+     */
+    public final class Cursor implements PostingCursor {
+
+        private int block = -1;
+        private int shallowBlock = -1;
+        private int position;
+        private int remainingInBlock;
+        private int doc = -1;
+        private int rank;
+        // Номер текущей записи в блоке и запись, с которой начинаются непрочитанные позиции
+        private int indexInBlock = -1;
+        private int positionsIndex;
+        private int positionsPointer;
+        private int positionsDoc = -1;
+        private int[] currentPositions;
+
+        @Override
+        public int docId() {
+            return doc;
+        }
+
+        @Override
+        public int rank() {
+            return rank;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int maxRank() {
+            return maxRank;
+        }
+
+        // Переход к блоку, который может содержать target, без распаковки записей
+        @Override
+        public int advanceShallow(int target) {
+            int from = Math.max(Math.max(block, shallowBlock), 0);
+            if (from >= blockCount) {
+                return NO_MORE_DOCS;
+            }
+            if (blockLastDoc(from) < target) {
+                from = findBlock(target, from + 1);
+                if (from == blockCount) {
+                    return NO_MORE_DOCS;
+                }
+            }
+            shallowBlock = from;
+            return blockLastDoc(from);
+        }
+
+        @Override
+        public int blockMaxRank() {
+            return PostingList.this.blockMaxRank(Math.max(shallowBlock, 0));
+        }
+
+        // Позиции леммы на текущей странице; позиции предыдущих записей блока только перешагиваются
+        @Override
+        public int[] positions() {
+            if (block < 0 || doc == NO_MORE_DOCS) {
+                return NO_POSITIONS;
+            }
+            if (positionsDoc == doc) {
+                return currentPositions;
+            }
+            while (positionsIndex < indexInBlock) {
+                int[] pointer = {positionsPointer};
+                int length = readVarint(pointer);
+                positionsPointer = pointer[0] + length;
+                positionsIndex++;
+            }
+            int[] pointer = {positionsPointer};
+            int length = readVarint(pointer);
+            int end = pointer[0] + length;
+            int[] positions = new int[readVarint(pointer)];
+            int position = 0;
+            for (int i = 0; i < positions.length; i++) {
+                position += readVarint(pointer);
+                positions[i] = position;
+            }
+            positionsPointer = end;
+            positionsIndex++;
+            positionsDoc = doc;
+            currentPositions = positions;
+            return positions;
+        }
+
+        // Переход к следующей странице списка
+        @Override
+        public int nextDoc() {
+            if (remainingInBlock == 0) {
+                if (block + 1 >= blockCount) {
+                    return doc = NO_MORE_DOCS;
+                }
+                enterBlock(block + 1);
+            }
+            return readPosting();
+        }
+
+        // Переход к первой странице с id не меньше target
+        @Override
+        public int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+            if (block < 0 || blockLastDoc(block) < target) {
+                int next = findBlock(target, block + 1);
+                if (next == blockCount) {
+                    return doc = NO_MORE_DOCS;
+                }
+                enterBlock(next);
+            }
+            // Последний id блока не меньше target, поэтому цикл завершится внутри блока
+            while (readPosting() < target) {
+                // распаковываем записи до нужной
+            }
+            return doc;
+        }
+
+        // Галопирующий поиск первого блока, последний id которого не меньше target
+        private int findBlock(int target, int from) {
+            int low = from;
+            int bound = 1;
+            while (from + bound - 1 < blockCount && blockLastDoc(from + bound - 1) < target) {
+                low = from + bound;
+                bound <<= 1;
+            }
+            int high = Math.min(from + bound - 1, blockCount - 1);
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (blockLastDoc(middle) < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        private void enterBlock(int next) {
+            block = next;
+            shallowBlock = next;
+            position = dataStart + blockOffset(next);
+            remainingInBlock = Math.min(BLOCK_SIZE, size - next * BLOCK_SIZE);
+            indexInBlock = -1;
+            positionsIndex = 0;
+            positionsPointer = positionsStart + blockPositionsOffset(next);
+            // Первая разность в блоке отсчитывается от последнего id предыдущего блока
+            doc = next == 0 ? -1 : blockLastDoc(next - 1);
+        }
+
+        private int readPosting() {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += delta;
+            rank = buffer.get(position++) & 0xFF;
+            remainingInBlock--;
+            indexInBlock++;
+            return doc;
+        }
+
+        private int readVarint(int[] pointer) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(pointer[0]++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
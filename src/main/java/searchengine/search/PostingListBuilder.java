@@ -0,0 +1,130 @@
+package searchengine.search;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Построитель {@link PostingList}. Страницы добавляются по возрастанию id
+ * и сразу сжимаются, поэтому при построении индекса в памяти не копятся несжатые массивы.
+ */
+public final class PostingListBuilder {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private int size;
+    private int lastDoc = -1;
+    private int blockCount;
+    private int[] blockLastDoc = new int[2];
+    private int[] blockOffset = new int[2];
+    private int[] blockPositionsOffset = new int[2];
+    private int[] blockMaxRank = new int[2];
+    private int maxRank;
+    private byte[] data = new byte[16];
+    private int dataLength;
+    private byte[] positions = new byte[16];
+    private int positionsLength;
+    private final byte[] scratch = new byte[5];
+
+    public void add(int docId, float rank) {
+        add(docId, rank, NO_POSITIONS);
+    }
+
+    // Позиции — номера слов страницы по возрастанию
+    public void add(int docId, float rank, int[] docPositions) {
+        if (docId < lastDoc) {
+            throw new IllegalArgumentException("Страницы должны добавляться по возрастанию id: " + docId + " < " + lastDoc);
+        }
+        if (docId == lastDoc) {
+            // Повторная запись той же страницы: складываем ранги, позиции остаются от первой записи
+            int merged = Math.min(255, (data[dataLength - 1] & 0xFF) + PostingList.quantizeRank(rank));
+            data[dataLength - 1] = (byte) merged;
+            updateMaxRank(merged);
+            return;
+        }
+        if (size % PostingList.BLOCK_SIZE == 0) {
+            startBlock();
+        }
+        data = ensureCapacity(data, dataLength, 6);
+        dataLength = writeVarint(data, dataLength, docId - lastDoc);
+        int quantized = PostingList.quantizeRank(rank);
+        data[dataLength++] = (byte) quantized;
+        updateMaxRank(quantized);
+        addPositions(docPositions);
+        lastDoc = docId;
+        blockLastDoc[blockCount - 1] = docId;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public PostingList build() {
+        int skipBytes = blockCount * PostingList.SKIP_ENTRY_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(PostingList.HEADER_BYTES + skipBytes + dataLength + positionsLength);
+        buffer.putInt(size).putInt(blockCount).putInt(maxRank).putInt(dataLength);
+        for (int i = 0; i < blockCount; i++) {
+            buffer.putInt(blockLastDoc[i]).putInt(blockOffset[i]).putInt(blockPositionsOffset[i])
+                    .put((byte) blockMaxRank[i]);
+        }
+        buffer.put(data, 0, dataLength);
+        buffer.put(positions, 0, positionsLength);
+        buffer.flip();
+        return new PostingList(buffer);
+    }
+
+    private void startBlock() {
+        if (blockCount == blockLastDoc.length) {
+            blockLastDoc = Arrays.copyOf(blockLastDoc, blockCount * 2);
+            blockOffset = Arrays.copyOf(blockOffset, blockCount * 2);
+            blockPositionsOffset = Arrays.copyOf(blockPositionsOffset, blockCount * 2);
+            blockMaxRank = Arrays.copyOf(blockMaxRank, blockCount * 2);
+        }
+        blockOffset[blockCount] = dataLength;
+        blockPositionsOffset[blockCount] = positionsLength;
+        blockCount++;
+    }
+
+    private void updateMaxRank(int rank) {
+        blockMaxRank[blockCount - 1] = Math.max(blockMaxRank[blockCount - 1], rank);
+        maxRank = Math.max(maxRank, rank);
+    }
+
+    // Длина записи позиций пишется перед ней, чтобы читатель мог перешагнуть её не распаковывая
+    private void addPositions(int[] docPositions) {
+        int bodyLength = varintLength(docPositions.length);
+        int previous = 0;
+        for (int position : docPositions) {
+            bodyLength += varintLength(position - previous);
+            previous = position;
+        }
+        positions = ensureCapacity(positions, positionsLength, 5 + bodyLength);
+        positionsLength = writeVarint(positions, positionsLength, bodyLength);
+        positionsLength = writeVarint(positions, positionsLength, docPositions.length);
+        previous = 0;
+        for (int position : docPositions) {
+            positionsLength = writeVarint(positions, positionsLength, position - previous);
+            previous = position;
+        }
+    }
+
+    private int varintLength(int value) {
+        return writeVarint(scratch, 0, value);
+    }
+
+    private static int writeVarint(byte[] target, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static byte[] ensureCapacity(byte[] array, int length, int extra) {
+        if (length + extra > array.length) {
+            return Arrays.copyOf(array, Math.max(array.length * 2, length + extra));
+        }
+        return array;
+    }
+}
@@ -0,0 +1,12 @@
+package searchengine.search;
+
+/**
+ * Список страниц леммы: один {@link PostingList} или несколько сегментов подряд.
+ */
+public interface Postings {
+
+    // Количество записей в списке
+    int size();
+
+    PostingCursor cursor();
+}
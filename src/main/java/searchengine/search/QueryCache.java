@@ -0,0 +1,92 @@
+package searchengine.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш результатов запросов с вытеснением давно не использованных записей и временем жизни.
+ * Запись действительна только для того поколения индекса, при котором она была построена:
+ * при переходе к новому поколению кэш очищается целиком.
+ */
+public final class QueryCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    // Порядок доступа: первым вытесняется самый давно прочитанный запрос
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public QueryCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > QueryCache.this.maxEntries;
+            }
+        };
+    }
+
+    // Значение или null, если его нет, оно устарело или построено для другого поколения индекса
+    public V get(K key, long currentGeneration) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            advance(currentGeneration);
+            Entry<V> entry = entries.get(key);
+            if (entry != null && now - entry.createdNanos() <= ttlNanos) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value, long currentGeneration) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        synchronized (this) {
+            advance(currentGeneration);
+            // Результат, посчитанный по уже заменённому снимку индекса, не сохраняется
+            if (currentGeneration == generation) {
+                entries.put(key, new Entry<>(value, System.nanoTime()));
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    // Доля запросов, на которые ответ взят из кэша
+    public double hitRate() {
+        long hitCount = hits();
+        long total = hitCount + misses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private void advance(long currentGeneration) {
+        if (currentGeneration > generation) {
+            entries.clear();
+            generation = currentGeneration;
+        }
+    }
+
+    private record Entry<V>(V value, long createdNanos) {
+    }
+}
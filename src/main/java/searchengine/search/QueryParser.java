@@ -0,0 +1,71 @@
+package searchengine.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор поискового запроса на обычные слова, фразы в кавычках ("..." или «...»)
+ * и пары слов с оператором NEAR/k. Лемматизация выполняется отдельно.
+ */
+public final class QueryParser {
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"?|«([^»]*)»?|(\\S+)");
+    private static final Pattern NEAR = Pattern.compile("(?i)NEAR/(\\d{1,4})");
+
+    private QueryParser() {
+    }
+
+    public static ParsedQuery parse(String query) {
+        List<String> words = new ArrayList<>();
+        List<String> phrases = new ArrayList<>();
+        List<Near> nears = new ArrayList<>();
+
+        List<String> tokens = new ArrayList<>();
+        List<Boolean> quoted = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(query);
+        while (matcher.find()) {
+            String phrase = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+            tokens.add(phrase != null ? phrase : matcher.group(3));
+            quoted.add(phrase != null);
+        }
+
+        boolean previousIsWord = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (quoted.get(i)) {
+                if (!token.isBlank()) {
+                    phrases.add(token);
+                }
+                previousIsWord = false;
+                continue;
+            }
+            Matcher near = NEAR.matcher(token);
+            boolean hasLeft = i > 0 && !quoted.get(i - 1);
+            boolean hasRight = i + 1 < tokens.size() && !quoted.get(i + 1);
+            if (near.matches() && hasLeft && hasRight) {
+                String left = tokens.get(i - 1);
+                String right = tokens.get(i + 1);
+                // Левое слово уже учтено как обычное — теперь оно часть условия NEAR
+                if (previousIsWord) {
+                    words.remove(words.size() - 1);
+                }
+                nears.add(new Near(left, right, Integer.parseInt(near.group(1))));
+                i++;
+                previousIsWord = false;
+                continue;
+            }
+            words.add(token);
+            previousIsWord = true;
+        }
+        return new ParsedQuery(String.join(" ", words), phrases, nears);
+    }
+
+    // Слова вне фраз и условий, тексты фраз и условия NEAR в исходном виде
+    public record ParsedQuery(String text, List<String> phrases, List<Near> nears) {
+    }
+
+    public record Near(String left, String right, int distance) {
+    }
+}
@@ -0,0 +1,59 @@
+package searchengine.search;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничения одного поискового запроса: срок и число шагов по кандидатам (страницам ведущего,
+ * самого короткого списка, включая пропуски блоков). Бюджет общий для всех шардов запроса;
+ * исчерпав его, поиск возвращает то, что успел найти.
+ */
+public final class SearchBudget {
+
+    public static final SearchBudget UNLIMITED = new SearchBudget(0, Long.MAX_VALUE, false);
+
+    private final long deadlineNanos;
+    private final long maxPostings;
+    private final boolean limited;
+    private final AtomicLong scanned = new AtomicLong();
+    private volatile boolean exhausted;
+
+    private SearchBudget(long deadlineNanos, long maxPostings, boolean limited) {
+        this.deadlineNanos = deadlineNanos;
+        this.maxPostings = maxPostings;
+        this.limited = limited;
+    }
+
+    // Срок отсчитывается от момента создания бюджета
+    public static SearchBudget of(long timeoutMillis, long maxPostings) {
+        return new SearchBudget(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), maxPostings, true);
+    }
+
+    // Учёт шагов по кандидатам; false, если бюджет исчерпан или срок истёк
+    public boolean consume(long steps) {
+        if (!limited) {
+            return true;
+        }
+        if (scanned.addAndGet(steps) > maxPostings || System.nanoTime() - deadlineNanos > 0) {
+            exhausted = true;
+        }
+        return !exhausted;
+    }
+
+    // Был ли поиск остановлен по бюджету
+    public boolean exhausted() {
+        return exhausted;
+    }
+
+    public boolean expired() {
+        return limited && System.nanoTime() - deadlineNanos > 0;
+    }
+
+    public long remainingMillis() {
+        return limited ? Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())) : Long.MAX_VALUE;
+    }
+
+    public long scanned() {
+        return scanned.get();
+    }
+}
@@ -0,0 +1,38 @@
+package searchengine.search;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор постраничной выдачи (search-after): релевантность и id последней
+ * показанной страницы. Следующая страница выдачи начинается сразу за ними, поэтому
+ * глубокие страницы не требуют отбора и пропуска всех предыдущих.
+ * Вместе с ними хранится релевантность лучшей страницы, от которой считается относительная релевантность.
+ */
+public record SearchCursor(double maxScore, double score, int pageId) {
+
+    private static final int BYTES = 20;
+
+    public static SearchCursor after(TopKCollector.ScoredPage page, double maxScore) {
+        return new SearchCursor(maxScore, page.score(), page.pageId());
+    }
+
+    public TopKCollector.ScoredPage last() {
+        return new TopKCollector.ScoredPage(pageId, score);
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES).putDouble(maxScore).putDouble(score).putInt(pageId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    // IllegalArgumentException, если строка не является курсором
+    public static SearchCursor decode(String value) {
+        byte[] bytes = Base64.getUrlDecoder().decode(value);
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Некорректный курсор выдачи: " + value);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new SearchCursor(buffer.getDouble(), buffer.getDouble(), buffer.getInt());
+    }
+}
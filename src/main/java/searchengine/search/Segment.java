@@ -0,0 +1,187 @@
+package searchengine.search;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Неизменяемый сегмент индекса на диске, отображённый в память только для чтения.
+ * <p>
+ * Формат файла (big-endian):
+ * <pre>
+ * заголовок: int magic, int version, int minPageId, int maxPageId, int termCount, int siteCount,
+ *            long dictionaryOffset, long termBytesOffset, long postingsOffset, long docsOffset, long sitesOffset,
+ *            long postingCount
+ * словарь:   termCount × (int termBytesPosition, int termLength, long postingsPosition, int postingsLength),
+ *            отсортирован по байтам UTF-8 леммы
+ * леммы:     байты UTF-8 всех лемм подряд
+ * списки:    буферы {@link PostingList} подряд
+ * страницы:  (maxPageId - minPageId + 1) × (int siteId, int length), siteId = 0 — страницы нет
+ * сайты:     siteCount × (int siteId, int pages, long totalLength)
+ * </pre>
+ * Данные не копируются в кучу: чтение идёт из страничного кэша операционной системы.
+ */
+public final class Segment {
+
+    static final int MAGIC = 0x53454731; // "SEG1"
+    static final int VERSION = 3;
+    static final int HEADER_BYTES = 72;
+    static final int DICTIONARY_ENTRY_BYTES = 20;
+    static final int DOC_ENTRY_BYTES = 8;
+    static final int SITE_ENTRY_BYTES = 16;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int minPageId;
+    private final int maxPageId;
+    private final int termCount;
+    private final int dictionaryOffset;
+    private final int termBytesOffset;
+    private final int docsOffset;
+    private final long postingBytes;
+    private final long postingCount;
+    private final Map<Integer, Integer> pagesBySite = new HashMap<>();
+    private final Map<Integer, Long> lengthBySite = new HashMap<>();
+
+    private Segment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Файл не является сегментом индекса: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Неподдерживаемая версия сегмента " + buffer.getInt(4) + ": " + path);
+        }
+        this.minPageId = buffer.getInt(8);
+        this.maxPageId = buffer.getInt(12);
+        this.termCount = buffer.getInt(16);
+        int siteCount = buffer.getInt(20);
+        this.dictionaryOffset = (int) buffer.getLong(24);
+        this.termBytesOffset = (int) buffer.getLong(32);
+        long postingsOffset = buffer.getLong(40);
+        this.docsOffset = (int) buffer.getLong(48);
+        int sitesOffset = (int) buffer.getLong(56);
+        this.postingBytes = docsOffset - postingsOffset;
+        this.postingCount = buffer.getLong(64);
+        for (int i = 0; i < siteCount; i++) {
+            int entry = sitesOffset + i * SITE_ENTRY_BYTES;
+            pagesBySite.put(buffer.getInt(entry), buffer.getInt(entry + 4));
+            lengthBySite.put(buffer.getInt(entry), buffer.getLong(entry + 8));
+        }
+    }
+
+    public static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Отображение остаётся действительным и после закрытия канала
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int minPageId() {
+        return minPageId;
+    }
+
+    public int maxPageId() {
+        return maxPageId;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public long postingBytes() {
+        return postingBytes;
+    }
+
+    public long postingCount() {
+        return postingCount;
+    }
+
+    public long sizeInBytes() {
+        return buffer.capacity();
+    }
+
+    // Количество страниц каждого сайта на момент записи сегмента
+    public Map<Integer, Integer> pagesBySite() {
+        return pagesBySite;
+    }
+
+    // Суммарная длина страниц каждого сайта на момент записи сегмента
+    public Map<Integer, Long> lengthBySite() {
+        return lengthBySite;
+    }
+
+    // Список страниц леммы или null: двоичный поиск по отсортированному словарю
+    public PostingList postings(String lemma) {
+        byte[] key = lemma.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = compareTerm(middle, key);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return postingsAt(middle);
+            }
+        }
+        return null;
+    }
+
+    // Id сайта страницы или 0, если страницы нет в сегменте
+    public int siteOf(int pageId) {
+        if (pageId < minPageId || pageId > maxPageId) {
+            return 0;
+        }
+        return buffer.getInt(docsOffset + (pageId - minPageId) * DOC_ENTRY_BYTES);
+    }
+
+    // Количество лемм на странице с учётом повторов
+    public int pageLength(int pageId) {
+        if (pageId < minPageId || pageId > maxPageId) {
+            return 0;
+        }
+        return buffer.getInt(docsOffset + (pageId - minPageId) * DOC_ENTRY_BYTES + 4);
+    }
+
+    // Байты UTF-8 леммы словаря по номеру (для слияния сегментов)
+    byte[] termBytesAt(int ordinal) {
+        int entry = dictionaryOffset + ordinal * DICTIONARY_ENTRY_BYTES;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        buffer.get(termBytesOffset + buffer.getInt(entry), bytes);
+        return bytes;
+    }
+
+    PostingList postingsAt(int ordinal) {
+        int entry = dictionaryOffset + ordinal * DICTIONARY_ENTRY_BYTES;
+        int position = (int) buffer.getLong(entry + 8);
+        int length = buffer.getInt(entry + 16);
+        return new PostingList(buffer.slice(position, length));
+    }
+
+    // Беззнаковое сравнение байтов леммы словаря с ключом
+    private int compareTerm(int ordinal, byte[] key) {
+        int entry = dictionaryOffset + ordinal * DICTIONARY_ENTRY_BYTES;
+        int position = termBytesOffset + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(position + i) & 0xFF) - (key[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+}
@@ -0,0 +1,68 @@
+package searchengine.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Слияние соседних сегментов в один. Удалённые страницы при слиянии отбрасываются.
+ */
+public final class SegmentMerger {
+
+    private SegmentMerger() {
+    }
+
+    // Сегменты должны идти по возрастанию диапазонов id страниц
+    public static Segment merge(List<Segment> segments, BitSet deleted, Path path) throws IOException {
+        int minPageId = segments.get(0).minPageId();
+        int maxPageId = segments.get(segments.size() - 1).maxPageId();
+        SegmentWriter writer = new SegmentWriter(path, minPageId, maxPageId);
+
+        for (Segment segment : segments) {
+            for (int pageId = segment.minPageId(); pageId <= segment.maxPageId(); pageId++) {
+                int siteId = segment.siteOf(pageId);
+                if (siteId != 0 && !deleted.get(pageId)) {
+                    writer.addPage(pageId, siteId, segment.pageLength(pageId));
+                }
+            }
+        }
+
+        // Слияние отсортированных словарей: на каждом шаге берём наименьшую лемму среди сегментов
+        int[] ordinals = new int[segments.size()];
+        byte[][] heads = new byte[segments.size()][];
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = segments.get(i).termCount() > 0 ? segments.get(i).termBytesAt(0) : null;
+        }
+        while (true) {
+            byte[] term = null;
+            for (byte[] head : heads) {
+                if (head != null && (term == null || Arrays.compareUnsigned(head, term) < 0)) {
+                    term = head;
+                }
+            }
+            if (term == null) {
+                break;
+            }
+
+            PostingListBuilder builder = new PostingListBuilder();
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] == null || !Arrays.equals(heads[i], term)) {
+                    continue;
+                }
+                PostingCursor cursor = segments.get(i).postingsAt(ordinals[i]).cursor();
+                for (int doc = cursor.nextDoc(); doc != PostingCursor.NO_MORE_DOCS; doc = cursor.nextDoc()) {
+                    if (!deleted.get(doc)) {
+                        builder.add(doc, cursor.rank(), cursor.positions());
+                    }
+                }
+                Segment segment = segments.get(i);
+                ordinals[i]++;
+                heads[i] = ordinals[i] < segment.termCount() ? segment.termBytesAt(ordinals[i]) : null;
+            }
+            writer.addPostings(term, builder.build());
+        }
+        return writer.write();
+    }
+}
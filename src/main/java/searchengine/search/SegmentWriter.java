@@ -0,0 +1,130 @@
+package searchengine.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Запись сегмента индекса в формате {@link Segment}. Файл сначала пишется во временный,
+ * а затем атомарно переименовывается, поэтому читатели никогда не видят его недописанным.
+ */
+public final class SegmentWriter {
+
+    private final Path path;
+    private final int minPageId;
+    private final int maxPageId;
+    private final int[] siteIds;
+    private final int[] lengths;
+    private final TreeMap<byte[], PostingList> terms = new TreeMap<>(Arrays::compareUnsigned);
+
+    public SegmentWriter(Path path, int minPageId, int maxPageId) {
+        this.path = path;
+        this.minPageId = minPageId;
+        this.maxPageId = maxPageId;
+        this.siteIds = new int[maxPageId - minPageId + 1];
+        this.lengths = new int[maxPageId - minPageId + 1];
+    }
+
+    public void addPage(int pageId, int siteId, int length) {
+        siteIds[pageId - minPageId] = siteId;
+        lengths[pageId - minPageId] = length;
+    }
+
+    public void addPostings(String lemma, PostingList postings) {
+        addPostings(lemma.getBytes(StandardCharsets.UTF_8), postings);
+    }
+
+    void addPostings(byte[] lemma, PostingList postings) {
+        if (postings.size() > 0) {
+            terms.put(lemma, postings);
+        }
+    }
+
+    public Segment write() throws IOException {
+        long termBytes = 0;
+        long postingBytes = 0;
+        long postingCount = 0;
+        for (Map.Entry<byte[], PostingList> entry : terms.entrySet()) {
+            termBytes += entry.getKey().length;
+            postingBytes += entry.getValue().sizeInBytes();
+            postingCount += entry.getValue().size();
+        }
+        Map<Integer, Integer> pagesBySite = new TreeMap<>();
+        Map<Integer, Long> lengthBySite = new TreeMap<>();
+        for (int i = 0; i < siteIds.length; i++) {
+            if (siteIds[i] != 0) {
+                pagesBySite.merge(siteIds[i], 1, Integer::sum);
+                lengthBySite.merge(siteIds[i], (long) lengths[i], Long::sum);
+            }
+        }
+
+        long dictionaryOffset = Segment.HEADER_BYTES;
+        long termBytesOffset = dictionaryOffset + (long) terms.size() * Segment.DICTIONARY_ENTRY_BYTES;
+        long postingsOffset = termBytesOffset + termBytes;
+        long docsOffset = postingsOffset + postingBytes;
+        long sitesOffset = docsOffset + (long) siteIds.length * Segment.DOC_ENTRY_BYTES;
+        long fileSize = sitesOffset + (long) pagesBySite.size() * Segment.SITE_ENTRY_BYTES;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Сегмент превышает 2 ГБ, уменьшите search-index.flush-pages: " + path);
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(Segment.MAGIC);
+            out.writeInt(Segment.VERSION);
+            out.writeInt(minPageId);
+            out.writeInt(maxPageId);
+            out.writeInt(terms.size());
+            out.writeInt(pagesBySite.size());
+            out.writeLong(dictionaryOffset);
+            out.writeLong(termBytesOffset);
+            out.writeLong(postingsOffset);
+            out.writeLong(docsOffset);
+            out.writeLong(sitesOffset);
+            out.writeLong(postingCount);
+
+            int termPosition = 0;
+            long postingsPosition = postingsOffset;
+            for (Map.Entry<byte[], PostingList> entry : terms.entrySet()) {
+                out.writeInt(termPosition);
+                out.writeInt(entry.getKey().length);
+                out.writeLong(postingsPosition);
+                out.writeInt(entry.getValue().sizeInBytes());
+                termPosition += entry.getKey().length;
+                postingsPosition += entry.getValue().sizeInBytes();
+            }
+            for (byte[] term : terms.keySet()) {
+                out.write(term);
+            }
+            for (PostingList postings : terms.values()) {
+                ByteBuffer bytes = postings.bytes();
+                byte[] copy = new byte[bytes.remaining()];
+                bytes.get(copy);
+                out.write(copy);
+            }
+            for (int i = 0; i < siteIds.length; i++) {
+                out.writeInt(siteIds[i]);
+                out.writeInt(lengths[i]);
+            }
+            for (Map.Entry<Integer, Integer> site : pagesBySite.entrySet()) {
+                out.writeInt(site.getKey());
+                out.writeInt(site.getValue());
+                out.writeLong(lengthBySite.get(site.getKey()));
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Segment.open(path);
+    }
+}
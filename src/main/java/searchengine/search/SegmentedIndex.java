@@ -0,0 +1,149 @@
+package searchengine.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Неизменяемый снимок индекса: сегменты на диске по возрастанию id страниц и множество удалённых страниц.
+ * Снимок целиком заменяется после записи или слияния сегментов, поэтому читается без блокировок.
+ */
+public final class SegmentedIndex {
+
+    private final IndexManifest manifest;
+    private final List<Segment> segments;
+    private final BitSet deleted;
+    private final Map<Integer, Integer> pagesBySite = new HashMap<>();
+    private final Map<Integer, Long> lengthBySite = new HashMap<>();
+    private final int pageCount;
+    private final long totalLength;
+
+    public SegmentedIndex(IndexManifest manifest, List<Segment> segments, BitSet deleted) {
+        this.manifest = manifest;
+        this.segments = List.copyOf(segments);
+        this.deleted = deleted;
+        for (Segment segment : segments) {
+            segment.pagesBySite().forEach((siteId, pages) -> pagesBySite.merge(siteId, pages, Integer::sum));
+            segment.lengthBySite().forEach((siteId, length) -> lengthBySite.merge(siteId, length, Long::sum));
+        }
+        for (int pageId = deleted.nextSetBit(0); pageId >= 0; pageId = deleted.nextSetBit(pageId + 1)) {
+            int siteId = segmentSiteOf(pageId);
+            if (siteId != 0) {
+                pagesBySite.merge(siteId, -1, Integer::sum);
+                lengthBySite.merge(siteId, (long) -pageLength(pageId), Long::sum);
+            }
+        }
+        this.pageCount = pagesBySite.values().stream().mapToInt(Integer::intValue).sum();
+        this.totalLength = lengthBySite.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    // Открытие индекса по манифесту: сегменты только отображаются в память, данные не читаются
+    public static SegmentedIndex open(Path directory) throws IOException {
+        IndexManifest manifest = IndexManifest.read(directory);
+        List<Segment> segments = new ArrayList<>();
+        for (String name : manifest.segments()) {
+            segments.add(Segment.open(directory.resolve(name)));
+        }
+        BitSet deleted = manifest.deletes() == null
+                ? new BitSet()
+                : IndexManifest.readDeletes(directory.resolve(manifest.deletes()));
+        return new SegmentedIndex(manifest, segments, deleted);
+    }
+
+    public IndexManifest manifest() {
+        return manifest;
+    }
+
+    public List<Segment> segments() {
+        return segments;
+    }
+
+    public BitSet deleted() {
+        return (BitSet) deleted.clone();
+    }
+
+    // Наибольший id страницы, уже записанной в сегменты
+    public int maxPageId() {
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).maxPageId();
+    }
+
+    // Список страниц леммы по всем сегментам или null, если лемма не встречается
+    public Postings postings(String lemma) {
+        List<PostingList> parts = new ArrayList<>();
+        for (Segment segment : segments) {
+            PostingList list = segment.postings(lemma);
+            if (list != null) {
+                parts.add(list);
+            }
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        return parts.size() == 1 ? parts.get(0) : new ConcatenatedPostings(parts);
+    }
+
+    // Id сайта страницы или 0, если страницы нет в индексе или она удалена
+    public int siteOf(int pageId) {
+        return deleted.get(pageId) ? 0 : segmentSiteOf(pageId);
+    }
+
+    // Количество лемм на странице с учётом повторов
+    public int pageLength(int pageId) {
+        Segment segment = segmentOf(pageId);
+        return segment == null ? 0 : segment.pageLength(pageId);
+    }
+
+    // Количество страниц всего индекса (siteId == 0) или одного сайта
+    public int pageCount(int siteId) {
+        return siteId == 0 ? pageCount : pagesBySite.getOrDefault(siteId, 0);
+    }
+
+    // Средняя длина страницы всего индекса (siteId == 0) или одного сайта
+    public double averagePageLength(int siteId) {
+        int pages = pageCount(siteId);
+        long length = siteId == 0 ? totalLength : lengthBySite.getOrDefault(siteId, 0L);
+        return pages == 0 ? 0 : (double) length / pages;
+    }
+
+    // Записей словаря во всех сегментах (одна лемма может встречаться в нескольких)
+    public long termCount() {
+        return segments.stream().mapToLong(Segment::termCount).sum();
+    }
+
+    public long postingCount() {
+        return segments.stream().mapToLong(Segment::postingCount).sum();
+    }
+
+    public long sizeInBytes() {
+        return segments.stream().mapToLong(Segment::sizeInBytes).sum();
+    }
+
+    // Средний объём одной записи списка в байтах, включая таблицы блоков
+    public double bytesPerPosting() {
+        long postings = postingCount();
+        return postings == 0 ? 0 : (double) segments.stream().mapToLong(Segment::postingBytes).sum() / postings;
+    }
+
+    private int segmentSiteOf(int pageId) {
+        Segment segment = segmentOf(pageId);
+        return segment == null ? 0 : segment.siteOf(pageId);
+    }
+
+    // Двоичный поиск сегмента, диапазон которого содержит страницу
+    private Segment segmentOf(int pageId) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Segment segment = segments.get(middle);
+            if (segment.maxPageId() < pageId) {
+                low = middle + 1;
+            } else if (segment.minPageId() > pageId) {
+                high = middle - 1;
+            } else {
+                return segment;
+            }
+        }
+        return null;
+    }
+}
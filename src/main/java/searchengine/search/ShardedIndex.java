@@ -0,0 +1,89 @@
+package searchengine.search;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемый снимок индекса, разбитого по сайтам: у каждого сайта свой набор сегментов.
+ * Запрос по одному сайту читает только его шард, запрос по всем сайтам выполняется
+ * по шардам параллельно.
+ */
+public final class ShardedIndex {
+
+    public static final ShardedIndex EMPTY = new ShardedIndex(Map.of());
+
+    private final Map<Integer, SegmentedIndex> shards;
+
+    public ShardedIndex(Map<Integer, SegmentedIndex> shards) {
+        this.shards = new TreeMap<>(shards);
+    }
+
+    // Шарды по id сайта
+    public Map<Integer, SegmentedIndex> shards() {
+        return shards;
+    }
+
+    // Шард сайта или null, если страниц сайта в индексе нет
+    public SegmentedIndex shard(int siteId) {
+        return shards.get(siteId);
+    }
+
+    // Количество страниц всего индекса (siteId == 0) или одного сайта
+    public int pageCount(int siteId) {
+        if (siteId != 0) {
+            SegmentedIndex shard = shards.get(siteId);
+            return shard == null ? 0 : shard.pageCount(0);
+        }
+        return shards.values().stream().mapToInt(shard -> shard.pageCount(0)).sum();
+    }
+
+    // Средняя длина страницы всего индекса (siteId == 0) или одного сайта
+    public double averagePageLength(int siteId) {
+        if (siteId != 0) {
+            SegmentedIndex shard = shards.get(siteId);
+            return shard == null ? 0 : shard.averagePageLength(0);
+        }
+        double totalLength = 0;
+        int pages = 0;
+        for (SegmentedIndex shard : shards.values()) {
+            totalLength += shard.averagePageLength(0) * shard.pageCount(0);
+            pages += shard.pageCount(0);
+        }
+        return pages == 0 ? 0 : totalLength / pages;
+    }
+
+    // Количество страниц с леммой во всём индексе (siteId == 0) или на одном сайте
+    public long documentFrequency(String lemma, int siteId) {
+        long frequency = 0;
+        for (Map.Entry<Integer, SegmentedIndex> entry : shards.entrySet()) {
+            if (siteId == 0 || entry.getKey() == siteId) {
+                Postings postings = entry.getValue().postings(lemma);
+                frequency += postings == null ? 0 : postings.size();
+            }
+        }
+        return frequency;
+    }
+
+    public int segmentCount() {
+        return shards.values().stream().mapToInt(shard -> shard.segments().size()).sum();
+    }
+
+    public long termCount() {
+        return shards.values().stream().mapToLong(SegmentedIndex::termCount).sum();
+    }
+
+    public long postingCount() {
+        return shards.values().stream().mapToLong(SegmentedIndex::postingCount).sum();
+    }
+
+    public long sizeInBytes() {
+        return shards.values().stream().mapToLong(SegmentedIndex::sizeInBytes).sum();
+    }
+
+    // Средний объём одной записи списка в байтах по всем шардам
+    public double bytesPerPosting() {
+        long postings = postingCount();
+        double bytes = shards.values().stream().mapToDouble(shard -> shard.bytesPerPosting() * shard.postingCount()).sum();
+        return postings == 0 ? 0 : bytes / postings;
+    }
+}
@@ -0,0 +1,122 @@
+package searchengine.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Сниппет по сохранённым позициям слов: выбирается окно текста, в котором больше всего
+ * разных лемм запроса (при равенстве — больше всего совпадений), и выделяются только
+ * слова по их позициям, без регулярных выражений и повторной лемматизации.
+ */
+public final class SnippetBuilder {
+
+    private SnippetBuilder() {
+    }
+
+    public static String build(String text, TokenOffsets tokens, Collection<String> lemmas, int maxLength) {
+        // Номер леммы запроса для каждой леммы страницы
+        int[] queryLemmaOf = new int[tokens.lemmaCount()];
+        Arrays.fill(queryLemmaOf, -1);
+        int queryLemmaCount = 0;
+        for (String lemma : lemmas) {
+            int ordinal = tokens.ordinalOf(lemma);
+            if (ordinal >= 0) {
+                queryLemmaOf[ordinal] = queryLemmaCount++;
+            }
+        }
+
+        int[] matches = new int[tokens.size()];
+        int matchCount = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (queryLemmaOf[tokens.ordinal(i)] >= 0) {
+                matches[matchCount++] = i;
+            }
+        }
+        if (matchCount == 0) {
+            return excerpt(text, 0, Math.min(text.length(), maxLength), tokens, matches, 0);
+        }
+
+        // Скользящее окно по совпадениям, не длиннее maxLength символов
+        int[] counts = new int[queryLemmaCount];
+        int distinct = 0;
+        int bestDistinct = -1;
+        int bestMatches = 0;
+        int bestLeft = 0;
+        int bestRight = 0;
+        int left = 0;
+        for (int right = 0; right < matchCount; right++) {
+            if (counts[queryLemmaOf[tokens.ordinal(matches[right])]]++ == 0) {
+                distinct++;
+            }
+            while (tokens.end(matches[right]) - tokens.start(matches[left]) > maxLength) {
+                if (--counts[queryLemmaOf[tokens.ordinal(matches[left])]] == 0) {
+                    distinct--;
+                }
+                left++;
+            }
+            int windowMatches = right - left + 1;
+            if (distinct > bestDistinct || (distinct == bestDistinct && windowMatches > bestMatches)) {
+                bestDistinct = distinct;
+                bestMatches = windowMatches;
+                bestLeft = left;
+                bestRight = right;
+            }
+        }
+
+        // Окно дополняется текстом поровну с обеих сторон и выравнивается по границам слов
+        int windowStart = tokens.start(matches[bestLeft]);
+        int windowEnd = Math.max(windowStart, tokens.end(matches[bestRight]));
+        int from = Math.max(0, windowStart - (maxLength - (windowEnd - windowStart)) / 2);
+        int to = Math.min(text.length(), from + maxLength);
+        from = Math.max(0, Math.min(from, to - maxLength));
+        if (from > 0) {
+            int space = text.indexOf(' ', from);
+            from = space < 0 || space >= windowStart ? from : space + 1;
+        }
+        if (to < text.length()) {
+            int space = text.lastIndexOf(' ', to);
+            to = space < windowEnd ? to : space;
+        }
+        return excerpt(text, from, to, tokens, matches, matchCount);
+    }
+
+    // Фрагмент [from, to) с выделенными совпадениями и многоточиями по краям
+    private static String excerpt(String text, int from, int to, TokenOffsets tokens, int[] matches, int matchCount) {
+        StringBuilder snippet = new StringBuilder(to - from + 32);
+        if (from > 0) {
+            snippet.append("...");
+        }
+        int position = from;
+        for (int i = 0; i < matchCount; i++) {
+            int start = tokens.start(matches[i]);
+            int end = tokens.end(matches[i]);
+            if (start < from || end > to) {
+                continue;
+            }
+            appendEscaped(snippet, text, position, start);
+            snippet.append("<b>");
+            appendEscaped(snippet, text, start, end);
+            snippet.append("</b>");
+            position = end;
+        }
+        appendEscaped(snippet, text, position, to);
+        if (to < text.length()) {
+            snippet.append("...");
+        }
+        return snippet.toString();
+    }
+
+    // Текст страницы вставляется в HTML выдачи, поэтому разметка в нём экранируется
+    private static void appendEscaped(StringBuilder out, String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package searchengine.search;
+
+import java.util.*;
+
+/**
+ * Неизменяемое префиксное дерево лемм для подсказок. Узлы хранятся в массивах,
+ * дети каждого узла лежат подряд и отсортированы по символу. В каждом узле записан
+ * наибольший вес лемм его поддерева, поэтому лучшие продолжения префикса находятся
+ * обходом по убыванию этого веса без просмотра всего поддерева.
+ */
+public final class SuggestionTrie {
+
+    public static final SuggestionTrie EMPTY = build(Map.of());
+
+    private final char[] labels;
+    private final int[] parents;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final long[] weights;      // Вес леммы, оканчивающейся в узле, или -1
+    private final long[] maxWeights;   // Наибольший вес в поддереве узла
+    private final int termCount;
+
+    private SuggestionTrie(char[] labels, int[] parents, int[] firstChild, int[] childCount, long[] weights,
+                           long[] maxWeights, int termCount) {
+        this.labels = labels;
+        this.parents = parents;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.weights = weights;
+        this.maxWeights = maxWeights;
+        this.termCount = termCount;
+    }
+
+    // Построение по весам лемм; узлы нумеруются по уровням, поэтому дети узла занимают соседние номера
+    public static SuggestionTrie build(Map<String, Long> termWeights) {
+        String[] terms = termWeights.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int capacity = 1;
+        for (String term : terms) {
+            capacity += term.length();
+        }
+        char[] labels = new char[capacity];
+        int[] parents = new int[capacity];
+        int[] firstChild = new int[capacity];
+        int[] childCount = new int[capacity];
+        long[] weights = new long[capacity];
+        long[] maxWeights = new long[capacity];
+
+        // Диапазон лемм [from, to) с общим префиксом длины depth, соответствующий узлу
+        int[] rangeFrom = new int[capacity];
+        int[] rangeTo = new int[capacity];
+        int[] depths = new int[capacity];
+        rangeTo[0] = terms.length;
+        parents[0] = -1;
+        int nodeCount = 1;
+        for (int node = 0; node < nodeCount; node++) {
+            int from = rangeFrom[node];
+            int to = rangeTo[node];
+            int depth = depths[node];
+            weights[node] = -1;
+            if (from < to && terms[from].length() == depth) {
+                weights[node] = termWeights.get(terms[from]);
+                from++;
+            }
+            firstChild[node] = nodeCount;
+            while (from < to) {
+                char label = terms[from].charAt(depth);
+                int end = from + 1;
+                while (end < to && terms[end].charAt(depth) == label) {
+                    end++;
+                }
+                labels[nodeCount] = label;
+                parents[nodeCount] = node;
+                rangeFrom[nodeCount] = from;
+                rangeTo[nodeCount] = end;
+                depths[nodeCount] = depth + 1;
+                nodeCount++;
+                from = end;
+            }
+            childCount[node] = nodeCount - firstChild[node];
+        }
+
+        // Дети имеют большие номера, чем родитель, поэтому максимумы поддеревьев считаются обратным проходом
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            maxWeights[node] = Math.max(maxWeights[node], weights[node]);
+            if (node > 0) {
+                maxWeights[parents[node]] = Math.max(maxWeights[parents[node]], maxWeights[node]);
+            }
+        }
+        return new SuggestionTrie(Arrays.copyOf(labels, nodeCount), Arrays.copyOf(parents, nodeCount),
+                Arrays.copyOf(firstChild, nodeCount), Arrays.copyOf(childCount, nodeCount),
+                Arrays.copyOf(weights, nodeCount), Arrays.copyOf(maxWeights, nodeCount), terms.length);
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public int nodeCount() {
+        return labels.length;
+    }
+
+    // До limit лемм с данным префиксом по убыванию веса
+    public List<Suggestion> complete(String prefix, int limit) {
+        int node = find(prefix);
+        if (node < 0 || limit <= 0) {
+            return List.of();
+        }
+        // В очереди узлы с весом поддерева и готовые леммы с собственным весом; лемма извлекается
+        // не раньше любого поддерева с большим весом, поэтому результаты выходят в порядке убывания
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0]
+                ? Long.compare(b[0], a[0])
+                : a[2] != b[2] ? Long.compare(a[2], b[2]) : Long.compare(a[1], b[1]));
+        queue.add(new long[]{maxWeights[node], node, 0});
+        List<Suggestion> suggestions = new ArrayList<>(limit);
+        while (!queue.isEmpty() && suggestions.size() < limit) {
+            long[] entry = queue.poll();
+            int current = (int) entry[1];
+            if (entry[2] == 1) {
+                suggestions.add(new Suggestion(termOf(current), weights[current]));
+                continue;
+            }
+            if (weights[current] >= 0) {
+                queue.add(new long[]{weights[current], current, 1});
+            }
+            for (int child = firstChild[current]; child < firstChild[current] + childCount[current]; child++) {
+                queue.add(new long[]{maxWeights[child], child, 0});
+            }
+        }
+        return suggestions;
+    }
+
+    // Узел префикса или -1; дети узла отсортированы по символу, поэтому спуск идёт двоичным поиском
+    private int find(String prefix) {
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node >= 0; i++) {
+            char label = prefix.charAt(i);
+            int low = firstChild[node];
+            int high = low + childCount[node] - 1;
+            node = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (labels[middle] < label) {
+                    low = middle + 1;
+                } else if (labels[middle] > label) {
+                    high = middle - 1;
+                } else {
+                    node = middle;
+                    break;
+                }
+            }
+        }
+        return node;
+    }
+
+    private String termOf(int node) {
+        StringBuilder term = new StringBuilder();
+        for (int current = node; current > 0; current = parents[current]) {
+            term.append(labels[current]);
+        }
+        return term.reverse().toString();
+    }
+
+    public record Suggestion(String text, long weight) {
+    }
+}
@@ -0,0 +1,150 @@
+package searchengine.search;
+
+import java.util.*;
+
+/**
+ * Неизменяемый индекс исправления опечаток методом симметричного удаления (SymSpell).
+ * Для каждой леммы заранее записаны все варианты её префикса с удалёнными одним-двумя символами.
+ * При поиске такие же удаления строятся для слова запроса и ищутся в хэш-таблице, поэтому
+ * число обращений зависит только от длины слова, а не от размера словаря.
+ */
+public final class SymSpellIndex {
+
+    public static final int MAX_DISTANCE = 2;
+
+    // Удаления строятся только по началу слова: это ограничивает объём индекса для длинных лемм
+    private static final int PREFIX_LENGTH = 7;
+
+    public static final SymSpellIndex EMPTY = build(Map.of());
+
+    private final String[] terms;
+    private final long[] frequencies;
+    private final Map<String, Integer> ordinals;
+    private final Map<String, int[]> deletes;
+
+    private SymSpellIndex(String[] terms, long[] frequencies, Map<String, Integer> ordinals,
+                          Map<String, int[]> deletes) {
+        this.terms = terms;
+        this.frequencies = frequencies;
+        this.ordinals = ordinals;
+        this.deletes = deletes;
+    }
+
+    public static SymSpellIndex build(Map<String, Long> termFrequencies) {
+        String[] terms = termFrequencies.keySet().toArray(new String[0]);
+        long[] frequencies = new long[terms.length];
+        Map<String, Integer> ordinals = new HashMap<>(terms.length * 2);
+        Map<String, List<Integer>> candidates = new HashMap<>();
+        for (int ordinal = 0; ordinal < terms.length; ordinal++) {
+            frequencies[ordinal] = termFrequencies.get(terms[ordinal]);
+            ordinals.put(terms[ordinal], ordinal);
+            for (String delete : deletesOf(terms[ordinal], MAX_DISTANCE)) {
+                candidates.computeIfAbsent(delete, key -> new ArrayList<>(1)).add(ordinal);
+            }
+        }
+        Map<String, int[]> deletes = new HashMap<>(candidates.size() * 2);
+        candidates.forEach((delete, list) -> deletes.put(delete, list.stream().mapToInt(Integer::intValue).toArray()));
+        return new SymSpellIndex(terms, frequencies, ordinals, deletes);
+    }
+
+    public int termCount() {
+        return terms.length;
+    }
+
+    public int deleteCount() {
+        return deletes.size();
+    }
+
+    public boolean contains(String term) {
+        return ordinals.containsKey(term);
+    }
+
+    // Леммы словаря не дальше maxDistance правок от слова: сначала ближайшие, затем более частые
+    public List<Correction> lookup(String word, int maxDistance) {
+        int distanceLimit = Math.min(maxDistance, MAX_DISTANCE);
+        Integer exact = ordinals.get(word);
+        if (exact != null) {
+            return List.of(new Correction(word, 0, frequencies[exact]));
+        }
+        Set<Integer> checked = new HashSet<>();
+        List<Correction> corrections = new ArrayList<>();
+        for (String delete : deletesOf(word, distanceLimit)) {
+            int[] matches = deletes.get(delete);
+            if (matches == null) {
+                continue;
+            }
+            for (int ordinal : matches) {
+                if (!checked.add(ordinal)) {
+                    continue;
+                }
+                String term = terms[ordinal];
+                if (Math.abs(term.length() - word.length()) > distanceLimit) {
+                    continue;
+                }
+                int distance = distance(word, term, distanceLimit);
+                if (distance <= distanceLimit) {
+                    corrections.add(new Correction(term, distance, frequencies[ordinal]));
+                }
+            }
+        }
+        corrections.sort(Comparator.comparingInt(Correction::distance)
+                .thenComparing(Comparator.comparingLong(Correction::frequency).reversed())
+                .thenComparing(Correction::term));
+        return corrections;
+    }
+
+    // Само слово (по префиксу) и все варианты с удалёнными не более чем maxDistance символами
+    private static Set<String> deletesOf(String word, int maxDistance) {
+        String prefix = word.length() > PREFIX_LENGTH ? word.substring(0, PREFIX_LENGTH) : word;
+        Set<String> result = new HashSet<>();
+        result.add(prefix);
+        List<String> level = List.of(prefix);
+        for (int distance = 1; distance <= maxDistance; distance++) {
+            List<String> next = new ArrayList<>();
+            for (String current : level) {
+                for (int i = 0; i < current.length(); i++) {
+                    String delete = current.substring(0, i) + current.substring(i + 1);
+                    if (result.add(delete)) {
+                        next.add(delete);
+                    }
+                }
+            }
+            level = next;
+        }
+        return result;
+    }
+
+    // Расстояние Дамерау — Левенштейна (с перестановкой соседних символов); больше limit — limit + 1
+    static int distance(String a, String b, int limit) {
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+            if (rowMinimum > limit) {
+                return limit + 1;
+            }
+            int[] swap = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+
+    public record Correction(String term, int distance, long frequency) {
+    }
+}
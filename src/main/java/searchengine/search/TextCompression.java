@@ -0,0 +1,71 @@
+package searchengine.search;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие текста страниц алгоритмом Deflate. Текст хранится в базе сжатым
+ * и распаковывается только при построении сниппета. Необязательный словарь (общие для страниц
+ * сайта фрагменты, см. CompressionDictionary) должен быть одним и тем же при сжатии и распаковке.
+ */
+public final class TextCompression {
+
+    private TextCompression() {
+    }
+
+    public static byte[] compress(String text) {
+        return compress(text, null);
+    }
+
+    public static byte[] compress(String text, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(text.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, text.length() / 3));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] compressed) {
+        return decompress(compressed, null);
+    }
+
+    public static String decompress(byte[] compressed, byte[] dictionary) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && inflater.needsDictionary() && dictionary != null) {
+                    inflater.setDictionary(dictionary); // Запрашивается до первого байта данных
+                    dictionary = null;
+                    continue;
+                }
+                if (length == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Сжатый текст повреждён или обрезан");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Сжатый текст повреждён", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package searchengine.search;
+
+// Слово текста: его лемма и границы [start, end) в тексте
+public record TextToken(String lemma, int start, int end) {
+}
@@ -0,0 +1,147 @@
+package searchengine.search;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Позиции слов страницы с их леммами.
+ * <p>
+ * Формат (все числа — varint):
+ * <pre>
+ * lemmaCount, lemmaCount × (byteLength, байты UTF-8 леммы),
+ * tokenCount, tokenCount × (номер леммы, отступ от конца предыдущего слова, длина слова)
+ * </pre>
+ * Леммы страницы хранятся один раз, а для слов — только небольшие разности, поэтому
+ * на слово обычно уходит три-четыре байта.
+ */
+public final class TokenOffsets {
+
+    private final String[] lemmas;
+    private final int[] ordinals;
+    private final int[] starts;
+    private final int[] ends;
+
+    private TokenOffsets(String[] lemmas, int[] ordinals, int[] starts, int[] ends) {
+        this.lemmas = lemmas;
+        this.ordinals = ordinals;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public static TokenOffsets of(List<TextToken> tokens) {
+        return decode(encode(tokens));
+    }
+
+    public static byte[] encode(List<TextToken> tokens) {
+        Map<String, Integer> ordinalByLemma = new HashMap<>();
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(tokens.size() * 3);
+        int previousEnd = 0;
+        for (TextToken token : tokens) {
+            Integer ordinal = ordinalByLemma.get(token.lemma());
+            if (ordinal == null) {
+                ordinal = ordinalByLemma.size();
+                ordinalByLemma.put(token.lemma(), ordinal);
+                byte[] bytes = token.lemma().getBytes(StandardCharsets.UTF_8);
+                writeVarint(dictionary, bytes.length);
+                dictionary.writeBytes(bytes);
+            }
+            writeVarint(body, ordinal);
+            writeVarint(body, token.start() - previousEnd);
+            writeVarint(body, token.end() - token.start());
+            previousEnd = token.end();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(dictionary.size() + body.size() + 10);
+        writeVarint(out, ordinalByLemma.size());
+        out.writeBytes(dictionary.toByteArray());
+        writeVarint(out, tokens.size());
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    public static TokenOffsets decode(byte[] bytes) {
+        int[] position = {0};
+        String[] lemmas = new String[readVarint(bytes, position)];
+        for (int i = 0; i < lemmas.length; i++) {
+            int length = readVarint(bytes, position);
+            lemmas[i] = new String(bytes, position[0], length, StandardCharsets.UTF_8);
+            position[0] += length;
+        }
+        int count = readVarint(bytes, position);
+        int[] ordinals = new int[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int previousEnd = 0;
+        for (int i = 0; i < count; i++) {
+            ordinals[i] = readVarint(bytes, position);
+            starts[i] = previousEnd + readVarint(bytes, position);
+            ends[i] = starts[i] + readVarint(bytes, position);
+            previousEnd = ends[i];
+        }
+        return new TokenOffsets(lemmas, ordinals, starts, ends);
+    }
+
+    public int size() {
+        return ordinals.length;
+    }
+
+    // Количество разных лемм на странице
+    public int lemmaCount() {
+        return lemmas.length;
+    }
+
+    // Лемма словаря страницы по номеру
+    public String lemmaAt(int ordinal) {
+        return lemmas[ordinal];
+    }
+
+    public String lemma(int token) {
+        return lemmas[ordinals[token]];
+    }
+
+    // Номер леммы слова в словаре страницы
+    public int ordinal(int token) {
+        return ordinals[token];
+    }
+
+    // Номер леммы в словаре страницы или -1, если её на странице нет
+    public int ordinalOf(String lemma) {
+        for (int i = 0; i < lemmas.length; i++) {
+            if (lemmas[i].equals(lemma)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int start(int token) {
+        return starts[token];
+    }
+
+    public int end(int token) {
+        return ends[token];
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] bytes, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,63 @@
+package searchengine.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ограниченная куча лучших k страниц. Память и время не зависят от числа найденных страниц,
+ * полная сортировка выдачи не нужна.
+ */
+public final class TopKCollector {
+
+    // Лучшая страница — с большей релевантностью, при равенстве — с меньшим id
+    public static final Comparator<ScoredPage> BEST_FIRST = Comparator.comparingDouble(ScoredPage::score).reversed()
+            .thenComparingInt(ScoredPage::pageId);
+
+    private final int k;
+    // Курсор search-after: принимаются только страницы, которые в выдаче идут после него (null — любые)
+    private final ScoredPage after;
+    // На вершине худшая из отобранных страниц
+    private final PriorityQueue<ScoredPage> heap = new PriorityQueue<>(BEST_FIRST.reversed());
+
+    public TopKCollector(int k) {
+        this(k, null);
+    }
+
+    public TopKCollector(int k, ScoredPage after) {
+        this.k = Math.max(1, k);
+        this.after = after;
+    }
+
+    public void offer(int pageId, double score) {
+        if (after != null && (score > after.score() || score == after.score() && pageId <= after.pageId())) {
+            return; // Страница уже была на предыдущих страницах выдачи
+        }
+        if (heap.size() < k) {
+            heap.add(new ScoredPage(pageId, score));
+        } else if (score > heap.peek().score()) {
+            heap.poll();
+            heap.add(new ScoredPage(pageId, score));
+        }
+    }
+
+    public boolean isFull() {
+        return heap.size() == k;
+    }
+
+    // Релевантность, которую нужно превзойти, чтобы попасть в кучу
+    public double minScore() {
+        return isFull() ? heap.peek().score() : Double.NEGATIVE_INFINITY;
+    }
+
+    // Отобранные страницы по убыванию релевантности
+    public List<ScoredPage> sorted() {
+        List<ScoredPage> pages = new ArrayList<>(heap);
+        pages.sort(BEST_FIRST);
+        return pages;
+    }
+
+    public record ScoredPage(int pageId, double score) {
+    }
+}
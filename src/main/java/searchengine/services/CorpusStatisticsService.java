@@ -0,0 +1,264 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.CorpusStatistics.SiteStatistics;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Статистика корпуса для расчёта релевантности: обновляется индексатором, поиск читает готовый снимок
+@Service
+public class CorpusStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CorpusStatisticsService.class);
+
+    private static final String WATERMARK_SQL = "SELECT COALESCE(MAX(id), 0) FROM page";
+
+    // Сайт обходится одним потоком, поэтому недописанной может быть только его последняя страница:
+    // её леммы могут ещё не быть записаны, и она учитывается изменением из recordPage
+    private static final String IN_FLIGHT_SQL =
+            "SELECT MAX(p.id) FROM page p JOIN site s ON s.id = p.site_id " +
+            "WHERE s.status = 'INDEXING' GROUP BY p.site_id";
+
+    // Пересчёт учитывает только страницы не новее отметки, кроме недописанных (%s);
+    // остальные приходят изменениями
+    private static final String PAGES_SQL =
+            "SELECT p.site_id, COUNT(*) FROM page p WHERE p.id <= ?%s GROUP BY p.site_id";
+
+    // Длина страницы — сумма рангов её лемм, как и в поисковом индексе
+    private static final String LENGTH_SQL =
+            "SELECT p.site_id, SUM(i.`rank`) FROM `index` i JOIN page p ON p.id = i.page_id " +
+            "WHERE p.id <= ?%s GROUP BY p.site_id";
+
+    private static final String FREQUENCY_SQL =
+            "SELECT p.site_id, l.lemma, COUNT(DISTINCT i.page_id) FROM `index` i " +
+            "JOIN page p ON p.id = i.page_id JOIN lemma l ON l.id = i.lemma_id " +
+            "WHERE p.id <= ?%s GROUP BY p.site_id, l.lemma";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicReference<CorpusStatistics> snapshot = new AtomicReference<>(CorpusStatistics.EMPTY);
+
+    // Изменения, накопленные с последней публикации снимка
+    private Map<Integer, SiteDelta> pending = new ConcurrentHashMap<>();
+    // Индексаторы пишут изменения параллельно (чтение), публикация и перезагрузка забирают их целиком (запись)
+    private final ReadWriteLock pendingLock = new ReentrantReadWriteLock();
+    // Изменения, пришедшие во время пересчёта (null — пересчёт не идёт); после пересчёта применяются
+    // изменения страниц, не учтённых запросами
+    private Queue<PageChange> reloadLog;
+    // Во время пересчёта удалялись страницы или сайт: результат может их учитывать, нужен ещё один пересчёт
+    private boolean reloadStale;
+    // Последняя учтённая страница каждого сайта: если это последняя страница обходимого сайта,
+    // она уже дописана и пересчёт её не исключает
+    private final Map<Integer, Long> lastRecorded = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean reloadPending = new AtomicBoolean(false);
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "corpus-statistics-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CorpusStatisticsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Текущий снимок; до первой загрузки — пустой
+    public CorpusStatistics getSnapshot() {
+        return snapshot.get();
+    }
+
+    // Учёт новой страницы сайта, уже записанной в базу: леммы страницы и количество их вхождений
+    public void recordPage(int siteId, long pageId, Map<String, Integer> lemmaCounts) {
+        change(new PageChange(siteId, pageId, 1, lemmaCounts));
+    }
+
+    // Учёт удалённой страницы сайта с её прежними леммами
+    public void removePage(int siteId, long pageId, Map<String, Integer> lemmaCounts) {
+        change(new PageChange(siteId, pageId, -1, lemmaCounts));
+    }
+
+    private void change(PageChange change) {
+        pendingLock.readLock().lock();
+        try {
+            apply(pending, change);
+            if (change.sign() > 0) {
+                lastRecorded.put(change.siteId(), change.pageId());
+            }
+            if (reloadLog != null) {
+                reloadLog.add(change);
+            }
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    // Данные сайта удалены перед переиндексацией: его статистика обнуляется сразу
+    public void resetSite(int siteId) {
+        pendingLock.writeLock().lock();
+        try {
+            pending.remove(siteId);
+            lastRecorded.remove(siteId);
+            snapshot.set(snapshot.get().withSite(siteId, null));
+            if (reloadLog != null) {
+                reloadStale = true;
+            }
+        } finally {
+            pendingLock.writeLock().unlock();
+        }
+    }
+
+    // Накопленные изменения применяются к снимку; копируются только карты изменившихся сайтов
+    @Scheduled(fixedDelayString = "${corpus-statistics.publish-interval-ms:1000}")
+    public void publish() {
+        pendingLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<Integer, SiteDelta> changes = pending;
+            pending = new ConcurrentHashMap<>();
+            snapshot.set(withChanges(snapshot.get().sites(), changes));
+        } finally {
+            pendingLock.writeLock().unlock();
+        }
+    }
+
+    private static CorpusStatistics withChanges(Map<Integer, SiteStatistics> base, Map<Integer, SiteDelta> changes) {
+        Map<Integer, SiteStatistics> sites = new HashMap<>(base);
+        changes.forEach((siteId, delta) -> {
+            Map<String, Integer> frequency = new HashMap<>();
+            delta.frequency.forEach((lemma, count) -> frequency.put(lemma, count.intValue()));
+            SiteStatistics site = sites.getOrDefault(siteId, new SiteStatistics(0, 0, Map.of()));
+            sites.put(siteId, site.plus(delta.pages.intValue(), delta.length.sum(), frequency));
+        });
+        return new CorpusStatistics(sites);
+    }
+
+    private static void apply(Map<Integer, SiteDelta> deltas, PageChange change) {
+        SiteDelta delta = deltas.computeIfAbsent(change.siteId(), id -> new SiteDelta());
+        delta.pages.add(change.sign());
+        delta.length.add(change.sign() * change.length());
+        for (String lemma : change.lemmaCounts().keySet()) {
+            delta.frequency.computeIfAbsent(lemma, key -> new LongAdder()).add(change.sign());
+        }
+    }
+
+    // Полный пересчёт по таблицам при запуске
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        requestReload();
+    }
+
+    // Полный пересчёт в фоне: при запуске и когда изменения нельзя учесть по отдельности
+    public void requestReload() {
+        if (reloadPending.compareAndSet(false, true)) {
+            reloadExecutor.submit(this::reload);
+        }
+    }
+
+    // Запросы выполняются без блокировки: индексаторы продолжают работу, их изменения копятся в журнале.
+    // Запросы учитывают страницы не новее отметки, кроме последних страниц обходимых сайтов: остальные
+    // дописаны целиком (recordPage вызывается после записи лемм). Из журнала применяются изменения
+    // страниц новее отметки и исключённых страниц; исключённая страница, дописанная после пересчёта,
+    // попадает в обычные изменения
+    private void reload() {
+        reloadPending.set(false);
+        long start = System.currentTimeMillis();
+        Set<Long> recorded;
+        pendingLock.writeLock().lock();
+        try {
+            reloadLog = new ConcurrentLinkedQueue<>();
+            reloadStale = false;
+            recorded = new HashSet<>(lastRecorded.values());
+        } finally {
+            pendingLock.writeLock().unlock();
+        }
+        try {
+            // Отметка читается до недописанных страниц: страница, начатая позже, новее отметки
+            long watermark = jdbcTemplate.queryForObject(WATERMARK_SQL, Long.class);
+            Set<Long> inFlight = new HashSet<>(jdbcTemplate.queryForList(IN_FLIGHT_SQL, Long.class));
+            inFlight.removeAll(recorded);
+            String excluded = inFlight.isEmpty() ? "" : " AND p.id NOT IN (" +
+                    inFlight.stream().map(String::valueOf).collect(Collectors.joining(",")) + ")";
+            Map<Integer, Integer> pages = new HashMap<>();
+            jdbcTemplate.query(PAGES_SQL.formatted(excluded),
+                    (RowCallbackHandler) rs -> pages.put(rs.getInt(1), rs.getInt(2)), watermark);
+            Map<Integer, Long> lengths = new HashMap<>();
+            jdbcTemplate.query(LENGTH_SQL.formatted(excluded),
+                    (RowCallbackHandler) rs -> lengths.put(rs.getInt(1), rs.getLong(2)), watermark);
+            Map<Integer, Map<String, Integer>> frequencies = new HashMap<>();
+            jdbcTemplate.query(FREQUENCY_SQL.formatted(excluded), (RowCallbackHandler) rs -> frequencies
+                    .computeIfAbsent(rs.getInt(1), id -> new HashMap<>())
+                    .put(rs.getString(2), rs.getInt(3)), watermark);
+
+            Map<Integer, SiteStatistics> sites = new HashMap<>();
+            pages.forEach((siteId, count) -> sites.put(siteId, new SiteStatistics(count,
+                    lengths.getOrDefault(siteId, 0L), frequencies.getOrDefault(siteId, Map.of()))));
+
+            boolean stale;
+            pendingLock.writeLock().lock();
+            try {
+                Map<Integer, SiteDelta> changes = new HashMap<>();
+                stale = reloadStale;
+                for (PageChange change : reloadLog) {
+                    if (change.pageId() > watermark || inFlight.contains(change.pageId())) {
+                        apply(changes, change);
+                    } else if (change.sign() < 0) {
+                        stale = true;   // Неизвестно, видели ли запросы эту страницу
+                    }
+                }
+                pending = new ConcurrentHashMap<>();
+                snapshot.set(withChanges(sites, changes));
+            } finally {
+                reloadLog = null;
+                pendingLock.writeLock().unlock();
+            }
+            logger.info("Статистика корпуса пересчитана за {} мс: {} страниц, {} сайтов",
+                    System.currentTimeMillis() - start, snapshot.get().pageCount(0), sites.size());
+            if (stale) {
+                requestReload();
+            }
+        } catch (Exception e) {
+            pendingLock.writeLock().lock();
+            try {
+                reloadLog = null;
+            } finally {
+                pendingLock.writeLock().unlock();
+            }
+            logger.error("Не удалось пересчитать статистику корпуса", e);
+        }
+    }
+
+    private record PageChange(int siteId, long pageId, int sign, Map<String, Integer> lemmaCounts) {
+        long length() {
+            return lemmaCounts.values().stream().mapToLong(Integer::longValue).sum();
+        }
+    }
+
+    private static final class SiteDelta {
+        final LongAdder pages = new LongAdder();
+        final LongAdder length = new LongAdder();
+        final Map<String, LongAdder> frequency = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,68 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import searchengine.config.FlightRecorderSettings;
+import searchengine.tracing.PageIndexedEvent;
+import searchengine.tracing.SearchQueryEvent;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Непрерывная запись JDK Flight Recorder (flight-recorder.enabled). События страниц и запросов пишутся
+// вместе с событиями JVM (паузы GC, блокировки), поэтому медленную страницу или запрос можно сопоставить
+// с тем, что в это время происходило в JVM. Снимок снимается через jcmd <pid> JFR.dump name=searchengine
+@Service
+public class FlightRecorderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    private static final String RECORDING_NAME = "searchengine";
+
+    private final FlightRecorderSettings settings;
+    private Recording recording;
+
+    public FlightRecorderService(FlightRecorderSettings settings) {
+        this.settings = settings;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        try {
+            Recording started = new Recording(Configuration.getConfiguration(settings.getSettings()));
+            started.setName(RECORDING_NAME);
+            started.setToDisk(true);
+            started.setMaxAge(Duration.ofMinutes(settings.getMaxAgeMinutes()));
+            started.setMaxSize(settings.getMaxSizeMb() * 1024 * 1024);
+            // Собственные события включены всегда, независимо от выбранных настроек JDK
+            started.enable(PageIndexedEvent.class);
+            started.enable(SearchQueryEvent.class);
+            if (!settings.getDumpPath().isBlank()) {
+                started.setDestination(Path.of(settings.getDumpPath()));
+            }
+            started.start();
+            recording = started;
+            logger.info("Запись JFR «{}» запущена с настройками {}", RECORDING_NAME, settings.getSettings());
+        } catch (Exception e) {
+            logger.error("Не удалось запустить запись JFR", e);
+        }
+    }
+
+    // При заданном dumpPath запись сохраняется в файл при остановке
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.stop();
+            recording.close();
+            recording = null;
+        }
+    }
+}
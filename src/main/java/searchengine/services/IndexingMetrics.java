@@ -0,0 +1,99 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Метрики индексации и поиска для /actuator/prometheus. Счётчики и таймеры создаются один раз
+// на сочетание тегов и кэшируются, поэтому запись на горячем пути — поиск в хэш-таблице и сложение
+@Component
+public class IndexingMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<MeterKey, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> searchTimers = new ConcurrentHashMap<>();
+    private final Map<String, String> siteTags = new ConcurrentHashMap<>();
+    private final DistributionSummary searchPostings;
+
+    public IndexingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.searchPostings = DistributionSummary.builder("search.postings")
+                .description("Шаги по кандидатам ведущего списка в одном поисковом запросе")
+                .register(registry);
+    }
+
+    // Время этапа обработки страницы сайта или страницы с адресом url
+    public void recordStage(String url, String stage, long nanos) {
+        MeterKey stageKey = new MeterKey("crawl.stage", siteTag(url), stage);
+        stageTimers.computeIfAbsent(stageKey, key -> Timer.builder(key.name())
+                        .description("Время этапа обработки страницы")
+                        .tags("site", key.site(), "stage", key.detail())
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void pageIndexed(String url) {
+        counter("crawl.pages", url, "", "Проиндексированные страницы").increment();
+    }
+
+    public void lemmasAdded(String url, int count) {
+        counter("crawl.lemmas", url, "", "Новые леммы").increment(count);
+    }
+
+    public void postingsAdded(String url, int count) {
+        counter("crawl.postings", url, "", "Записи индекса (лемма на странице)").increment(count);
+    }
+
+    // Ошибка загрузки: HTTP-код ответа или 0 для сетевой ошибки
+    public void fetchError(String url, int code) {
+        counter("crawl.errors", url, Integer.toString(code), "Ошибки загрузки страниц").increment();
+    }
+
+    // Поисковый запрос: время и исход (ok, partial, error, rejected)
+    public void searchCompleted(String outcome, long nanos) {
+        searchTimers.computeIfAbsent(outcome, key -> Timer.builder("search.request")
+                        .description("Время поискового запроса")
+                        .tag("outcome", key)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void searchScanned(long postings) {
+        searchPostings.record(postings);
+    }
+
+    // Ключ счётчика: имя метрики и сайт, для ошибок — ещё и код
+    private Counter counter(String name, String url, String code, String description) {
+        return counters.computeIfAbsent(new MeterKey(name, siteTag(url), code), key -> {
+            Counter.Builder builder = Counter.builder(name).description(description).tag("site", key.site());
+            if (!code.isEmpty()) {
+                builder.tag("code", code);
+            }
+            return builder.register(registry);
+        });
+    }
+
+    // Тег сайта — имя хоста; url — адрес сайта или сам хост, чтобы кэш тегов оставался по числу сайтов
+    private String siteTag(String url) {
+        return siteTags.computeIfAbsent(url, key -> {
+            try {
+                String host = URI.create(key).getHost();
+                return host == null ? key : host;
+            } catch (IllegalArgumentException e) {
+                return key;
+            }
+        });
+    }
+
+    // Имя метрики, сайт и третий тег (этап или код ошибки)
+    private record MeterKey(String name, String site, String detail) {
+    }
+}
@@ -2,101 +2,138 @@ package searchengine.services;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
-
+import searchengine.config.CrawlSettings;
+import searchengine.config.SitesList;
+import searchengine.crawl.UrlCanonicalizer;
+import searchengine.model.IndexStatus;
+import searchengine.model.Site;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.IndexingProgressService.Stage;
+
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.regex.Matcher;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 @Service
 public class IndexingPageService {
 
-    // Разрешенные домены
-    private static final List<String> ALLOWED_DOMAINS = Arrays.asList("example.com", "mywebsite.com");
-
     private static final Logger logger = LoggerFactory.getLogger(IndexingPageService.class);
 
-    private final JdbcTemplate jdbcTemplate;
+    private static final String PAGE_ID_SQL = "SELECT id FROM page WHERE site_id = ? AND path = ?";
+
+    private static final String PAGE_LEMMAS_SQL =
+            "SELECT l.id, l.lemma, i.`rank` FROM `index` i JOIN lemma l ON l.id = i.lemma_id WHERE i.page_id = ?";
 
-    public IndexingPageService(JdbcTemplate jdbcTemplate) {
+    private final JdbcTemplate jdbcTemplate;
+    private final IndexingService indexingService;
+    private final SiteRepository siteRepository;
+    private final SitesList sitesList;
+    private final SearchIndexService searchIndexService;
+    private final CorpusStatisticsService corpusStatisticsService;
+    private final SiteStatisticsService siteStatisticsService;
+    private final IndexingMetrics indexingMetrics;
+    private final CrawlSettings crawlSettings;
+    private final UrlCanonicalizer canonicalizer;
+
+    public IndexingPageService(JdbcTemplate jdbcTemplate, IndexingService indexingService,
+                               SiteRepository siteRepository, SitesList sitesList,
+                               SearchIndexService searchIndexService, CorpusStatisticsService corpusStatisticsService,
+                               SiteStatisticsService siteStatisticsService, IndexingMetrics indexingMetrics,
+                               CrawlSettings crawlSettings) {
         this.jdbcTemplate = jdbcTemplate;
+        this.indexingService = indexingService;
+        this.siteRepository = siteRepository;
+        this.sitesList = sitesList;
+        this.searchIndexService = searchIndexService;
+        this.corpusStatisticsService = corpusStatisticsService;
+        this.siteStatisticsService = siteStatisticsService;
+        this.indexingMetrics = indexingMetrics;
+        this.crawlSettings = crawlSettings;
+        this.canonicalizer = new UrlCanonicalizer(crawlSettings.getIgnoredQueryParams());
     }
 
     // Метод для индексации страницы
-    public Object indexPage(String url) {
+    public Object indexPage(String rawUrl) {
         // Проверка на корректность URL
-        if (!isValidUrl(url)) {
-            logger.error("Неверный формат URL: {}", url);
+        if (!isValidUrl(rawUrl)) {
+            logger.error("Неверный формат URL: {}", rawUrl);
             return new ErrorResponse("Неверный формат URL");
         }
+        // Адрес в том же каноническом виде, что и при обходе сайта, иначе страница сохранится второй раз
+        String canonical = canonicalizer.canonicalize(rawUrl);
+        String url = canonical != null ? canonical : rawUrl;
 
-        // Проверка на принадлежность разрешенным доменам
-        if (!isAllowedDomain(url)) {
+        // Страница должна принадлежать одному из сайтов конфигурации
+        searchengine.config.Site configSite = findConfiguredSite(url);
+        if (configSite == null) {
             logger.error("Данная страница находится за пределами сайтов, указанных в конфигурационном файле: {}", url);
             return new ErrorResponse("Данная страница находится за пределами сайтов, указанных в конфигурационном файле");
         }
 
-        // Получение HTML-кода страницы
-        String html = fetchHtml(url);
-        if (html == null) {
+        // Загрузка страницы теми же настройками, что и при обходе
+        Connection.Response response = timed(configSite.getUrl(), Stage.FETCH, () -> fetch(configSite.getUrl(), url));
+        if (response == null) {
             logger.error("Не удалось загрузить страницу: {}", url);
             return new ErrorResponse("Не удалось загрузить страницу");
         }
 
         // Индексация страницы
-        return indexHtml(url, html);
+        return indexResponse(configSite, url, response);
     }
 
-    // Метод для извлечения HTML с URL
-    private String fetchHtml(String url) {
+    // Сайт конфигурации, которому принадлежит адрес, или null
+    private searchengine.config.Site findConfiguredSite(String url) {
+        for (searchengine.config.Site configSite : sitesList.getSites()) {
+            if (url.startsWith(configSite.getUrl())) {
+                return configSite;
+            }
+        }
+        return null;
+    }
+
+    // Загрузка страницы; null, если она недоступна
+    private Connection.Response fetch(String siteUrl, String url) {
         try {
-            // Используем Jsoup для извлечения HTML
-            Document doc = Jsoup.connect(url).get();
-            return doc.html();
+            return Jsoup.connect(url)
+                    .userAgent(crawlSettings.getUserAgent())
+                    .referrer("http://www.google.com")
+                    .timeout(crawlSettings.getTimeoutMs())
+                    .execute()
+                    .bufferUp();
         } catch (Exception e) {
+            indexingMetrics.fetchError(siteUrl, e instanceof HttpStatusException http ? http.getStatusCode() : 0);
             logger.error(String.format("Ошибка при извлечении HTML с URL %s", url), e);
             return null;
         }
     }
 
-    // Метод индексации HTML
-    private Object indexHtml(String url, String html) {
+    // Замена прежней версии страницы новой: запись идёт через IndexingService, как при обходе сайта
+    private Object indexResponse(searchengine.config.Site configSite, String url, Connection.Response response) {
         try {
-            // Удаляем данные о странице, если она уже проиндексирована
-            removePageData(url);
-
-            // Сохраняем страницу в базу данных
-            int pageId = savePage(url, html);
-            if (pageId == -1) {
-                logger.error("Ошибка при сохранении страницы в базу данных для URL: {}", url);
-                return new ErrorResponse("Ошибка при сохранении страницы в базу данных");
-            }
-
-            // Извлекаем леммы из HTML-кода
-            List<String> lemmas = extractLemmasFromHtml(html);
+            Site site = findOrCreateSite(configSite);
+            Document doc = response.parse();
 
-            // Подсчитываем частоту каждой леммы
-            Map<String, Integer> lemmaCounts = new HashMap<>();
-            for (String lemma : lemmas) {
-                lemmaCounts.put(lemma, lemmaCounts.getOrDefault(lemma, 0) + 1);
-            }
+            // Страница сохраняется под адресом, на котором закончились редиректы, если он на том же сайте
+            String finalUrl = canonicalizer.canonicalize(response.url().toString());
+            String pageUrl = finalUrl != null && finalUrl.startsWith(site.getUrl()) ? finalUrl : url;
 
-            // Сохраняем леммы и их связи с текущей страницей
-            for (Map.Entry<String, Integer> entry : lemmaCounts.entrySet()) {
-                String lemma = entry.getKey();
-                int rank = entry.getValue();
+            // Старая версия страницы сразу вычитается из статистики корпуса и счётчиков сайта
+            removePage(site, pageUrl.replace(site.getUrl(), ""));
+            indexingService.indexDocument(site, pageUrl, response.statusCode(), doc);
 
-                // Сохраняем лемму или обновляем её частоту
-                int lemmaId = saveLemma(lemma);
-
-                // Сохраняем связь леммы с страницей
-                saveIndex(pageId, lemmaId, rank);
-            }
+            // Страница дописывается в поисковый индекс, старая версия из него удаляется
+            searchIndexService.requestRefresh();
 
             // Успешная индексация
             return new SuccessResponse(true);
@@ -106,105 +143,60 @@ public class IndexingPageService {
         }
     }
 
-
-    private void removePageData(String url) {
-        try {
-            // Находим страницу в таблице page
-            String selectPageIdSQL = "SELECT id FROM page WHERE url = ?";
-            Integer pageId = jdbcTemplate.queryForObject(selectPageIdSQL, Integer.class, url);
-
-            if (pageId != null) {
-                // Удаляем связи в таблице index
-                String deleteIndexSQL = "DELETE FROM index WHERE page_id = ?";
-                jdbcTemplate.update(deleteIndexSQL, pageId);
-
-                // Удаляем леммы, которые больше не связаны с другими страницами
-                String deleteUnusedLemmasSQL =
-                        "DELETE FROM lemma WHERE id NOT IN (SELECT DISTINCT lemma_id FROM index)";
-                jdbcTemplate.update(deleteUnusedLemmasSQL);
-
-                // Удаляем страницу из таблицы page
-                String deletePageSQL = "DELETE FROM page WHERE id = ?";
-                jdbcTemplate.update(deletePageSQL, pageId);
-
-                logger.info("Удалена информация о странице с URL: {}", url);
-            } else {
-                logger.info("Информация о странице с URL {} не найдена, пропускаем удаление", url);
-            }
-        } catch (Exception e) {
-            logger.error("Ошибка при удалении данных о странице с URL: {}", url, e);
+    // Сайт из базы; сайт, который ещё не обходился, создаётся проиндексированным
+    private Site findOrCreateSite(searchengine.config.Site configSite) {
+        Site site = siteRepository.findByUrl(configSite.getUrl());
+        if (site == null) {
+            site = siteRepository.save(Site.builder()
+                    .url(configSite.getUrl())
+                    .name(configSite.getName())
+                    .status(IndexStatus.INDEXED)
+                    .statusTime(LocalDateTime.now())
+                    .build());
+            siteStatisticsService.siteUpdated(site);
         }
+        return site;
     }
 
-
-
-    // Извлечение лемм из HTML-кода
-    private List<String> extractLemmasFromHtml(String html) {
-        // Используем Jsoup для парсинга HTML
-        Document doc = Jsoup.parse(html);
-        String text = doc.text();
-
-        // Преобразуем текст в нижний регистр и разбиваем на слова
-        String[] words = text.toLowerCase().split("\\W+");
-
-        // Преобразуем в список лемм (здесь можно использовать NLP для реальной лемматизации)
-        return Arrays.asList(words);
-    }
-
-    // Сохраняем страницу в базу данных
-    private int savePage(String url, String html) {
-        String domain = getDomain(url);
-
-        // Получаем site_id из таблицы site
-        String selectSiteSQL = "SELECT id FROM site WHERE url = ?";
-        Integer siteId = jdbcTemplate.queryForObject(selectSiteSQL, Integer.class, domain);
-
-        if (siteId == null) {
-            logger.error("Сайт для домена {} не найден в таблице site", domain);
-            return -1; // Ошибка: сайт не найден
+    // Удаление прежней версии страницы: связи с леммами, леммы, которые больше нигде не встречаются,
+    // и сама страница (её HTML и проекция удаляются каскадно)
+    private void removePage(Site site, String path) {
+        List<Integer> pageIds = jdbcTemplate.queryForList(PAGE_ID_SQL, Integer.class, site.getId(), path);
+        if (pageIds.isEmpty()) {
+            logger.info("Информация о странице {}{} не найдена, пропускаем удаление", site.getUrl(), path);
+            return;
         }
-
-        // Сохраняем страницу в таблицу page
-        String insertPageSQL = "INSERT INTO page (site_id, url, html) VALUES (?, ?, ?) RETURNING id";
-        try {
-            Integer result = jdbcTemplate.queryForObject(insertPageSQL, Integer.class, siteId, url, html);
-            return result != null ? result : -1;
-        } catch (Exception e) {
-            logger.error("Ошибка при сохранении страницы в базе данных: {}", url, e);
-            return -1;
+        int pageId = pageIds.get(0);
+
+        // Запоминаем леммы страницы до удаления связей
+        List<Object[]> lemmaIds = new ArrayList<>();
+        Map<String, Integer> lemmaCounts = new HashMap<>();
+        jdbcTemplate.query(PAGE_LEMMAS_SQL, (RowCallbackHandler) rs -> {
+            lemmaIds.add(new Object[]{rs.getInt(1)});
+            lemmaCounts.put(rs.getString(2), rs.getInt(3));
+        }, pageId);
+
+        jdbcTemplate.update("UPDATE lemma l JOIN `index` i ON i.lemma_id = l.id SET l.frequency = l.frequency - 1 " +
+                "WHERE i.page_id = ?", pageId);
+        jdbcTemplate.update("DELETE FROM `index` WHERE page_id = ?", pageId);
+        int lemmasRemoved = 0;
+        for (int removed : jdbcTemplate.batchUpdate("DELETE FROM lemma WHERE id = ? AND frequency <= 0", lemmaIds)) {
+            lemmasRemoved += Math.max(0, removed);
         }
-    }
-
+        jdbcTemplate.update("DELETE FROM page WHERE id = ?", pageId);
 
-    // Сохраняем лемму в таблицу lemma или обновляем её частоту
-    private int saveLemma(String lemma) {
-        String insertLemmaSQL = "INSERT INTO lemma (word) VALUES (?) ON CONFLICT (word) DO UPDATE SET frequency = frequency + 1 RETURNING id";
-        // Обрабатываем возможность возвращения null (если лемма не добавлена)
-        try {
-            Integer result = jdbcTemplate.queryForObject(insertLemmaSQL, Integer.class, lemma);
-            return result != null ? result : -1;
-        } catch (Exception e) {
-            logger.error("Ошибка при сохранении леммы в базе данных: {}", lemma, e);
-            return -1;
-        }
+        corpusStatisticsService.removePage(Math.toIntExact(site.getId()), pageId, lemmaCounts);
+        siteStatisticsService.pageRemoved(site, lemmasRemoved);
+        logger.info("Удалена информация о странице {}{}", site.getUrl(), path);
     }
 
-    // Сохраняем связь между леммой и страницей в таблицу index
-    private void saveIndex(int pageId, int lemmaId, int rank) {
-        String checkExistenceSQL = "SELECT COUNT(*) FROM index WHERE page_id = ? AND lemma_id = ?";
+    // Выполнение этапа с записью его времени в метрики
+    private <T> T timed(String site, Stage stage, Supplier<T> action) {
+        long start = System.nanoTime();
         try {
-            Integer count = jdbcTemplate.queryForObject(checkExistenceSQL, Integer.class, pageId, lemmaId);
-
-            // Обработка, если count == null
-            if (count == null || count == 0) {
-                String insertIndexSQL = "INSERT INTO index (page_id, lemma_id, rank) VALUES (?, ?, ?)";
-                jdbcTemplate.update(insertIndexSQL, pageId, lemmaId, rank);
-            } else {
-                String updateIndexSQL = "UPDATE index SET rank = ? WHERE page_id = ? AND lemma_id = ?";
-                jdbcTemplate.update(updateIndexSQL, rank, pageId, lemmaId);
-            }
-        } catch (Exception e) {
-            logger.error("Ошибка при сохранении индекса в базе данных для страницы с id: {} и леммы с id: {}", pageId, lemmaId, e);
+            return action.get();
+        } finally {
+            indexingMetrics.recordStage(site, stage.tag(), System.nanoTime() - start);
         }
     }
 
@@ -216,24 +208,6 @@ public class IndexingPageService {
         return matcher.matches();
     }
 
-    // Проверка на разрешенный домен
-    private boolean isAllowedDomain(String url) {
-        String domain = getDomain(url);
-        return ALLOWED_DOMAINS.contains(domain);
-    }
-
-    // Извлечение домена из URL
-    private String getDomain(String url) {
-        try {
-            String[] parts = url.split("/");
-            String domainWithPort = parts[2];
-            String domain = domainWithPort.split(":")[0];
-            return domain.split("\\?")[0];
-        } catch (Exception e) {
-            return "";
-        }
-    }
-
     // Ответ в случае успеха
     @Getter
     @Setter
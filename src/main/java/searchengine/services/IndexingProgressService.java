@@ -0,0 +1,214 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import searchengine.dto.statistics.IndexingProgress;
+import searchengine.dto.statistics.SiteProgress;
+import searchengine.model.Site;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Ход индексации в реальном времени. Индексатор обновляет счётчики сайтов, раз в интервал один общий
+// таймер собирает из них событие и рассылает его всем подписчикам потока. Время этапов и ошибки
+// загрузки заодно записываются в метрики (IndexingMetrics)
+@Service
+public class IndexingProgressService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexingProgressService.class);
+
+    // Подписка не ограничена по времени, клиент переподключается сам при обрыве
+    private static final long EMITTER_TIMEOUT_MS = 0;
+
+    // Этапы обработки страницы; SAVE_LEMMAS входит в PERSISTENCE
+    public enum Stage {
+        SLEEP("sleep"), FETCH("fetch"), PARSE("parse"), LEMMATIZATION("lemmatization"), PERSISTENCE("persistence"),
+        SAVE_LEMMAS("save_lemmas");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final IndexingMetrics metrics;
+
+    private final Map<String, SiteMetrics> sites = new ConcurrentHashMap<>();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    // Последнее разосланное событие: его получает новый подписчик, не дожидаясь следующего тика
+    private volatile IndexingProgress last = empty();
+    private long lastTickNanos = System.nanoTime();
+
+    public IndexingProgressService(IndexingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Новый подписчик потока
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(error -> emitters.remove(emitter));
+        send(emitter, last);
+        return emitter;
+    }
+
+    // Начат обход сайта: счётчики прошлого обхода сбрасываются
+    public void siteStarted(Site site) {
+        SiteMetrics metrics = new SiteMetrics(site.getUrl(), site.getName());
+        metrics.running = true;
+        sites.put(site.getUrl(), metrics);
+    }
+
+    public void siteFinished(Site site) {
+        metricsOf(site).running = false;
+    }
+
+    public void frontier(Site site, int size) {
+        metricsOf(site).frontier = size;
+    }
+
+    public void pageFetched(Site site) {
+        metricsOf(site).fetched.increment();
+    }
+
+    // Страница не загружена: HTTP-код ответа или 0 для сетевой ошибки
+    public void fetchFailed(Site site, int code) {
+        metricsOf(site).errors.computeIfAbsent(code, key -> new LongAdder()).increment();
+        metrics.fetchError(site.getUrl(), code);
+    }
+
+    // Страница вошла в этап; возвращает отметку времени для stageFinished
+    public long stageStarted(Site site, Stage stage) {
+        metricsOf(site).stage(stage).active.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    // Страница вышла из этапа; возвращает его длительность в наносекундах
+    public long stageFinished(Site site, Stage stage, long startedAt) {
+        long nanos = System.nanoTime() - startedAt;
+        StageMetrics stageMetrics = metricsOf(site).stage(stage);
+        stageMetrics.active.decrementAndGet();
+        stageMetrics.pages.increment();
+        stageMetrics.nanos.add(nanos);
+        metrics.recordStage(site.getUrl(), stage.tag(), nanos);
+        return nanos;
+    }
+
+    // Общий тик для всех подписчиков; скорость считается по приросту загруженных страниц за интервал
+    @Scheduled(fixedRateString = "${indexing-progress.interval-ms:1000}")
+    public synchronized void tick() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - lastTickNanos) / 1e9);
+        lastTickNanos = now;
+
+        IndexingProgress progress = new IndexingProgress();
+        progress.setTime(System.currentTimeMillis());
+        List<SiteProgress> items = new ArrayList<>();
+        for (SiteMetrics site : sites.values()) {
+            long fetched = site.fetched.sum();
+            SiteProgress item = new SiteProgress();
+            item.setUrl(site.url);
+            item.setName(site.name);
+            item.setRunning(site.running);
+            item.setPagesFetched(fetched);
+            item.setPagesPerSecond((fetched - site.fetchedAtLastTick) / seconds);
+            item.setFrontier(site.frontier);
+            Map<Integer, Long> errors = new TreeMap<>();
+            site.errors.forEach((code, count) -> errors.put(code, count.sum()));
+            item.setErrors(errors);
+            // Страницы, уже загруженные, но ещё не записанные в базу; SAVE_LEMMAS входит в PERSISTENCE
+            int inProcess = site.stage(Stage.PARSE).active.get() + site.stage(Stage.LEMMATIZATION).active.get()
+                    + site.stage(Stage.PERSISTENCE).active.get();
+            item.setBacklog(site.frontier + inProcess);
+            item.setBacklogSeconds(item.getPagesPerSecond() > 0 ? item.getBacklog() / item.getPagesPerSecond() : 0);
+            item.setLemmatizationMs(site.stage(Stage.LEMMATIZATION).averageMillis());
+            item.setPersistenceMs(site.stage(Stage.PERSISTENCE).averageMillis());
+            site.fetchedAtLastTick = fetched;
+            progress.setIndexing(progress.isIndexing() || site.running);
+            items.add(item);
+        }
+        items.sort((a, b) -> a.getUrl().compareTo(b.getUrl()));
+        progress.setSites(items);
+        last = progress;
+
+        for (SseEmitter emitter : emitters) {
+            send(emitter, progress);
+        }
+    }
+
+    private void send(SseEmitter emitter, IndexingProgress progress) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(progress, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился; соединение закрывается, подписчик удаляется в onCompletion/onError
+            logger.debug("Подписчик хода индексации отключился: {}", e.getMessage());
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private SiteMetrics metricsOf(Site site) {
+        return sites.computeIfAbsent(site.getUrl(), url -> new SiteMetrics(url, site.getName()));
+    }
+
+    private static IndexingProgress empty() {
+        IndexingProgress progress = new IndexingProgress();
+        progress.setTime(System.currentTimeMillis());
+        progress.setSites(List.of());
+        return progress;
+    }
+
+    private static final class SiteMetrics {
+        final String url;
+        final String name;
+        volatile boolean running;
+        volatile int frontier;
+        final LongAdder fetched = new LongAdder();
+        long fetchedAtLastTick; // Меняется только в tick
+        final Map<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+        final Map<Stage, StageMetrics> stages = new EnumMap<>(Stage.class);
+
+        SiteMetrics(String url, String name) {
+            this.url = url;
+            this.name = name;
+            for (Stage stage : Stage.values()) {
+                stages.put(stage, new StageMetrics());
+            }
+        }
+
+        StageMetrics stage(Stage stage) {
+            return stages.get(stage);
+        }
+    }
+
+    private static final class StageMetrics {
+        final AtomicInteger active = new AtomicInteger();
+        final LongAdder pages = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        double averageMillis() {
+            long count = pages.sum();
+            return count == 0 ? 0 : nanos.sum() / 1e6 / count;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package searchengine.services;
 
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -12,15 +14,20 @@ import searchengine.model.IndexStatus;
 import searchengine.repositories.SiteRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.config.SitesList;
-import java.util.Random;
+import searchengine.config.CrawlSettings;
+import searchengine.crawl.CrawlBudget;
+import searchengine.crawl.CrawlFrontier;
+import searchengine.crawl.RobotsTxt;
+import searchengine.crawl.SitemapEntry;
+import searchengine.crawl.UrlCanonicalizer;
+
 import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.time.ZoneId;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import edu.stanford.nlp.pipeline.*;
 import java.util.*;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -29,6 +36,14 @@ import searchengine.model.Lemma;
 import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.IndexRepository;
 import searchengine.model.Index;
+import searchengine.model.PageProjection;
+import searchengine.repositories.PageProjectionRepository;
+import searchengine.search.TextCompression;
+import searchengine.search.TextToken;
+import searchengine.search.TokenOffsets;
+import searchengine.services.IndexingProgressService.Stage;
+import searchengine.services.SitemapService.SiteSeed;
+import searchengine.tracing.PageIndexedEvent;
 
 @Service
 public class IndexingService {
@@ -40,15 +55,43 @@ public class IndexingService {
     private final AtomicBoolean isIndexingStopped = new AtomicBoolean(false); // Флаг остановки индексации
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
+    private final PageProjectionRepository pageProjectionRepository;
+    private final PageContentService pageContentService;
+    private final SearchIndexService searchIndexService;
+    private final CorpusStatisticsService corpusStatisticsService;
+    private final SiteStatisticsService siteStatisticsService;
+    private final IndexingProgressService indexingProgressService;
+    private final IndexingMetrics indexingMetrics;
+    private final CrawlSettings crawlSettings;
+    private final SitemapService sitemapService;
+
+    // Лемма должна состоять из букв и цифр
+    private static final Pattern WORD_PATTERN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private static volatile StanfordCoreNLP pipeline;
 
     @Autowired
     public IndexingService(SitesList sitesList, SiteRepository siteRepository, PageRepository pageRepository,
-                           LemmaRepository lemmaRepository, IndexRepository indexRepository) {
+                           LemmaRepository lemmaRepository, IndexRepository indexRepository,
+                           PageProjectionRepository pageProjectionRepository, PageContentService pageContentService,
+                           SearchIndexService searchIndexService, CorpusStatisticsService corpusStatisticsService,
+                           SiteStatisticsService siteStatisticsService,
+                           IndexingProgressService indexingProgressService, IndexingMetrics indexingMetrics,
+                           CrawlSettings crawlSettings, SitemapService sitemapService) {
         this.sitesList = sitesList;
         this.siteRepository = siteRepository;
         this.pageRepository = pageRepository;
         this.lemmaRepository = lemmaRepository;
         this.indexRepository = indexRepository;
+        this.pageProjectionRepository = pageProjectionRepository;
+        this.pageContentService = pageContentService;
+        this.searchIndexService = searchIndexService;
+        this.corpusStatisticsService = corpusStatisticsService;
+        this.siteStatisticsService = siteStatisticsService;
+        this.indexingProgressService = indexingProgressService;
+        this.indexingMetrics = indexingMetrics;
+        this.crawlSettings = crawlSettings;
+        this.sitemapService = sitemapService;
         this.executorService = Executors.newFixedThreadPool(10); // Создаем пул потоков с 10 потоками
     }
 
@@ -56,17 +99,21 @@ public class IndexingService {
     @Transactional
     public void startIndexing() {
         for (searchengine.config.Site configSite : sitesList.getSites()) {
+            LocalDateTime lastCrawl = lastCompletedCrawl(configSite);
             Site site = getOrCreateSite(configSite);
             clearSiteData(site); // Очистка данных сайта
             site.setStatus(IndexStatus.INDEXING);
             site.setStatusTime(LocalDateTime.now());
             siteRepository.save(site);
+            siteStatisticsService.siteUpdated(site);
 
             System.out.println("Начата индексация сайта: " + site.getUrl());
             try {
                 // Запуск индексации сайта в отдельном потоке
-                executorService.submit(() -> indexOrReindexSite(site));
+                siteStatisticsService.jobStarted(site);
+                executorService.submit(() -> indexOrReindexSite(site, configSite, lastCrawl));
             } catch (Exception e) {
+                siteStatisticsService.jobFinished(site);
                 handleIndexingError(site, e);
             }
         }
@@ -79,17 +126,21 @@ public class IndexingService {
     @Transactional
     public void reindexAll() {
         for (searchengine.config.Site configSite : sitesList.getSites()) {
+            LocalDateTime lastCrawl = lastCompletedCrawl(configSite);
             Site site = getOrCreateSite(configSite);
             clearSiteData(site);
             site.setStatus(IndexStatus.INDEXING);
             site.setStatusTime(LocalDateTime.now());
             siteRepository.save(site);
+            siteStatisticsService.siteUpdated(site);
 
             System.out.println("Повторная индексация сайта: " + site.getUrl());
             try {
                 // Запуск повторной индексации сайта в отдельном потоке
-                executorService.submit(() -> indexOrReindexSite(site));
+                siteStatisticsService.jobStarted(site);
+                executorService.submit(() -> indexOrReindexSite(site, configSite, lastCrawl));
             } catch (Exception e) {
+                siteStatisticsService.jobFinished(site);
                 handleIndexingError(site, e);
             }
         }
@@ -114,6 +165,7 @@ public class IndexingService {
                 site.setLastError("Индексация остановлена пользователем");
                 site.setStatusTime(LocalDateTime.now());
                 siteRepository.save(site);
+                siteStatisticsService.siteUpdated(site);
                 System.out.println("Индексация остановлена для сайта: " + site.getUrl());
             }
         }
@@ -123,9 +175,22 @@ public class IndexingService {
     @Transactional
     private void clearSiteData(Site site) {
         pageRepository.deleteBySite_Url(site.getUrl());
+        if (site.getId() != null) {
+            corpusStatisticsService.resetSite(Math.toIntExact(site.getId()));
+            pageContentService.resetSite(site.getId());
+        }
+        siteStatisticsService.siteCleared(site);
+        // Удалённые страницы убираются из поискового индекса
+        searchIndexService.requestRefresh();
         System.out.println("Очистка данных сайта: " + site.getUrl());
     }
 
+    // Время окончания прошлого успешного обхода сайта или null
+    private LocalDateTime lastCompletedCrawl(searchengine.config.Site configSite) {
+        Site site = siteRepository.findByUrl(configSite.getUrl());
+        return site != null && site.getStatus() == IndexStatus.INDEXED ? site.getStatusTime() : null;
+    }
+
     // Получение или создание сайта
     private Site getOrCreateSite(searchengine.config.Site configSite) {
         Site site = siteRepository.findByUrl(configSite.getUrl());
@@ -154,29 +219,48 @@ public class IndexingService {
         site.setLastError("Ошибка индексации: " + e.getMessage());
         site.setStatusTime(LocalDateTime.now());
         siteRepository.save(site);
+        siteStatisticsService.siteUpdated(site);
         System.out.println("Ошибка при индексировании сайта: " + site.getUrl() + " - " + e.getMessage());
     }
 
-    // Индексация или переиндексация сайта
-    private void indexOrReindexSite(Site site) {
-        Set<String> visitedUrls = new HashSet<>();
-        Queue<String> urlQueue = new LinkedList<>();
-        urlQueue.add(site.getUrl());
+    // Индексация или переиндексация сайта: страницы обходятся по убыванию важности в пределах бюджета сайта
+    private void indexOrReindexSite(Site site, searchengine.config.Site configSite, LocalDateTime lastCrawl) {
+        CrawlFrontier frontier = new CrawlFrontier(configSite.getMaxDepth());
+        CrawlBudget budget = CrawlBudget.start(configSite);
+        // Все адреса приводятся к каноническому виду до постановки в очередь
+        UrlCanonicalizer canonicalizer = new UrlCanonicalizer(crawlSettings.getIgnoredQueryParams());
+        String root = canonicalizer.canonicalize(site.getUrl());
+        frontier.addRoot(root != null ? root : site.getUrl());
+        indexingProgressService.siteStarted(site);
 
         try {
-            while (!urlQueue.isEmpty()) {
+            // Адреса из карт сайта попадают в очередь сразу, не дожидаясь обхода ссылок
+            SiteSeed seed = sitemapService.discover(site.getUrl());
+            RobotsTxt robots = seed.robots();
+            addSitemapUrls(frontier, canonicalizer, seed.entries(), lastCrawl);
+            indexingProgressService.frontier(site, frontier.size());
+
+            while (!frontier.isEmpty()) {
                 if (isIndexingStopped.get()) {
                     System.out.println("Индексация остановлена для сайта: " + site.getUrl());
                     return;
                 }
+                String exhausted = budget.exhausted();
+                if (exhausted != null) {
+                    // Непройденные страницы — наименее важные; сайт считается проиндексированным
+                    System.out.println("Бюджет обхода сайта " + site.getUrl() + " исчерпан (" + exhausted +
+                            "), в очереди осталось страниц: " + frontier.size());
+                    break;
+                }
 
-                String currentUrl = urlQueue.poll();
                 // Обработка страницы в текущем потоке
-                crawlPage(currentUrl, site, visitedUrls, urlQueue);
+                crawlPage(frontier.poll(), site, robots, frontier, budget, canonicalizer);
+                indexingProgressService.frontier(site, frontier.size());
 
                 // Обновляем время статуса после обработки каждой страницы
                 site.setStatusTime(LocalDateTime.now());
                 siteRepository.save(site);  // Сохраняем обновленный статус в базе
+                siteStatisticsService.siteUpdated(site);
 
                 // Логируем обновление времени
                 System.out.println("Обновлено время статуса для сайта: " + site.getUrl() + " в " + site.getStatusTime());
@@ -186,104 +270,296 @@ public class IndexingService {
             site.setStatus(IndexStatus.INDEXED);
             site.setStatusTime(LocalDateTime.now());  // Обновляем время статуса на текущий момент
             siteRepository.save(site);
+            siteStatisticsService.siteUpdated(site);
             System.out.println("Индексация завершена для сайта: " + site.getUrl());
 
         } catch (Exception e) {
             // В случае ошибки меняем статус на FAILED и сохраняем информацию об ошибке
             handleIndexingError(site, e);
+        } finally {
+            indexingProgressService.siteFinished(site);
+            pageContentService.siteFinished(site.getId());
+            siteStatisticsService.jobFinished(site);
+            // Страницы сайта дописываются в поисковый индекс, в том числе после остановки или ошибки
+            searchIndexService.requestRefresh();
         }
     }
 
-    // Обход страницы
-    private void crawlPage(String pageUrl, Site site, Set<String> visitedUrls, Queue<String> urlQueue) {
-        if (visitedUrls.contains(pageUrl)) {
-            return; // Пропуск посещённой страницы
-        }
+    // Страницы карты сайта: не изменявшиеся после прошлого обхода получают меньший вес, при равной
+    // важности раньше идут недавно изменённые. Прошлый обход удаляется перед новым, поэтому
+    // неизменённые страницы не пропускаются, а только откладываются
+    private static void addSitemapUrls(CrawlFrontier frontier, UrlCanonicalizer canonicalizer,
+                                       List<SitemapEntry> entries, LocalDateTime lastCrawl) {
+        Instant since = lastCrawl == null ? null : lastCrawl.atZone(ZoneId.systemDefault()).toInstant();
+        List<SitemapEntry> ordered = entries.stream()
+                .map(entry -> new SitemapEntry(canonicalizer.canonicalize(entry.url()), entry.lastModified(),
+                        entry.priority()))
+                .filter(entry -> entry.url() != null)
+                .sorted(Comparator.comparing(SitemapEntry::lastModified,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .toList();
+        List<Boolean> unchanged = ordered.stream()
+                .map(entry -> since != null && entry.lastModified() != null && !entry.lastModified().isAfter(since))
+                .toList();
+        frontier.addSitemap(ordered, unchanged);
+    }
 
-        visitedUrls.add(pageUrl);
+    // Обход страницы, выданной очередью; её ссылки передаются обратно в очередь
+    private void crawlPage(CrawlFrontier.Candidate candidate, Site site, RobotsTxt robots, CrawlFrontier frontier,
+                           CrawlBudget budget, UrlCanonicalizer canonicalizer) {
+        String pageUrl = candidate.url();
 
+        // Событие JFR для разбора отдельной страницы; без включённой записи почти ничего не стоит
+        PageIndexedEvent event = new PageIndexedEvent();
+        event.url = pageUrl;
+        event.site = site.getUrl();
+        event.outcome = "failed";
         try {
-            // Задержка для имитации поведения пользователя
-            Random random = new Random();
-            int delay = 500 + random.nextInt(59500); // Задержка от 500 до 60000 миллисекунд (1 минуты)
-            Thread.sleep(delay);
+            // Задержка для имитации поведения пользователя, границы — в настройках crawl
+            int delay = crawlDelay();
+            if (delay > 0) {
+                long sleepStart = indexingProgressService.stageStarted(site, Stage.SLEEP);
+                try {
+                    Thread.sleep(delay);
+                } finally {
+                    indexingProgressService.stageFinished(site, Stage.SLEEP, sleepStart);
+                }
+            }
 
+            // Подключение к странице: загрузка тела и его разбор замеряются отдельно
+            event.begin();
+            Connection.Response response;
+            long fetchStart = indexingProgressService.stageStarted(site, Stage.FETCH);
+            try {
+                response = Jsoup.connect(pageUrl)
+                        .userAgent(crawlSettings.getUserAgent())
+                        .referrer("http://www.google.com")
+                        .timeout(crawlSettings.getTimeoutMs())
+                        .execute()
+                        .bufferUp();
+                event.bytes = response.bodyAsBytes().length;
+            } finally {
+                event.fetchTime = indexingProgressService.stageFinished(site, Stage.FETCH, fetchStart);
+                budget.fetchAttempted(event.bytes);
+            }
 
-            // Подключение к странице
-            Document doc = Jsoup.connect(pageUrl)
-                    .userAgent("Mozilla/5.0 (Windows; U; WindowsNT 5.1; en-US; rv1.8.1.6) Gecko/20070725 Firefox/2.0.0.6")
-                    .referrer("http://www.google.com")
-                    .timeout(5000)
-                    .get();
+            Document doc;
+            long parseStart = indexingProgressService.stageStarted(site, Stage.PARSE);
+            try {
+                doc = response.parse();
+            } finally {
+                event.parseTime = indexingProgressService.stageFinished(site, Stage.PARSE, parseStart);
+            }
 
-            int statusCode = doc.connection().response().statusCode();
+            int statusCode = response.statusCode();
+            event.statusCode = statusCode;
+            indexingProgressService.pageFetched(site);
 
             if (statusCode >= 300 && statusCode < 400) {
+                event.outcome = "skipped";
                 System.out.println("Страница с редиректом пропущена: " + pageUrl + " (Код: " + statusCode + ")");
                 return;
             }
 
             if (statusCode >= 400) {
+                event.outcome = "skipped";
+                indexingProgressService.fetchFailed(site, statusCode);
                 System.out.println("Страница пропущена из-за ошибки: " + pageUrl + " (Код: " + statusCode + ")");
                 return;
             }
 
+            // Адрес, на котором закончились редиректы (например, /dir -> /dir/): страница сохраняется под ним,
+            // отдельно он не загружается, а уже обойдённый — не сохраняется второй раз
+            String finalUrl = canonicalizer.canonicalize(response.url().toString());
+            if (finalUrl == null) {
+                finalUrl = pageUrl;
+            }
+            if (!finalUrl.equals(pageUrl)) {
+                if (!finalUrl.startsWith(site.getUrl())) {
+                    event.outcome = "skipped";
+                    System.out.println("Редирект за пределы сайта пропущен: " + pageUrl + " -> " + finalUrl);
+                    return;
+                }
+                if (frontier.markFetched(finalUrl)) {
+                    event.outcome = "duplicate";
+                    System.out.println("Редирект на уже обойдённую страницу пропущен: " + pageUrl + " -> " + finalUrl);
+                    return;
+                }
+            }
+
+            // Копия страницы с другим каноническим адресом сайта не индексируется: обходится сам канонический адрес
+            Element canonicalLink = doc.selectFirst("link[rel=canonical][href]");
+            String canonical = canonicalLink == null ? null : canonicalizer.canonicalize(canonicalLink.absUrl("href"));
+            if (canonical != null && !canonical.equals(finalUrl) && canonical.startsWith(site.getUrl())
+                    && robots.allows(canonical) && frontier.deferToCanonical(candidate, canonical)) {
+                event.outcome = "duplicate";
+                System.out.println("Копия страницы пропущена: " + pageUrl + " (канонический адрес: " + canonical + ")");
+                return;
+            }
+
             String textContent = doc.text();
-            List<String> lemmas = getLemmas(textContent);
-            Map<String, Integer> lemmaCountMap = countLemmas(lemmas);
-
-            Page page = Page.builder()
-                    .site(site)
-                    .path(pageUrl.replace(site.getUrl(), ""))
-                    .code(statusCode)
-                    .content(doc.html())
-                    .build();
-            pageRepository.save(page);
-            System.out.println("Индексирована страница: " + pageUrl);
+            long lemmatizationStart = indexingProgressService.stageStarted(site, Stage.LEMMATIZATION);
+            List<TextToken> tokens;
+            Map<String, Integer> lemmaCountMap;
+            try {
+                tokens = analyze(textContent);
+                lemmaCountMap = countLemmas(tokens.stream().map(TextToken::lemma).toList());
+            } finally {
+                event.lemmatizationTime = indexingProgressService.stageFinished(site, Stage.LEMMATIZATION,
+                        lemmatizationStart);
+            }
+            event.lemmaCount = lemmaCountMap.size();
 
-            saveLemmasAndIndex(page, lemmaCountMap);
+            long persistenceStart = indexingProgressService.stageStarted(site, Stage.PERSISTENCE);
+            try {
+                persistPage(site, finalUrl, statusCode, doc, textContent, tokens, lemmaCountMap);
+            } finally {
+                event.persistenceTime = indexingProgressService.stageFinished(site, Stage.PERSISTENCE,
+                        persistenceStart);
+            }
+            event.outcome = "indexed";
 
+            List<String> links = new ArrayList<>();
             for (Element link : doc.select("a[href]")) {
-                String nextUrl = link.absUrl("href");
-                if (nextUrl.startsWith(site.getUrl()) && !visitedUrls.contains(nextUrl)) {
-                    urlQueue.add(nextUrl);
+                String nextUrl = canonicalizer.canonicalize(link.absUrl("href"));
+                if (nextUrl != null && nextUrl.startsWith(site.getUrl()) && robots.allows(nextUrl)) {
+                    links.add(nextUrl);
                 }
             }
+            frontier.linksFound(candidate, links);
         } catch (IOException e) {
+            // HttpStatusException — ответ с кодом ошибки, остальные — сетевые ошибки и таймауты
+            int code = e instanceof HttpStatusException http ? http.getStatusCode() : 0;
+            event.statusCode = code;
+            event.outcome = code == 0 ? "failed" : "skipped";
+            indexingProgressService.fetchFailed(site, code);
             System.err.println("Ошибка при извлечении страницы: " + pageUrl + " - " + e.getMessage());
         } catch (InterruptedException e) {
             System.err.println("Операция была прервана: " + pageUrl + " - " + e.getMessage());
             Thread.currentThread().interrupt(); // Восстанавливаем статус прерывания
+        } finally {
+            event.commit();
+        }
+    }
+
+    // Индексация одной загруженной страницы (/api/indexPage) тем же путём, что и при обходе сайта;
+    // прежняя версия страницы должна быть уже удалена
+    public void indexDocument(Site site, String pageUrl, int statusCode, Document doc) {
+        String textContent = doc.text();
+        long lemmatizationStart = indexingProgressService.stageStarted(site, Stage.LEMMATIZATION);
+        List<TextToken> tokens;
+        Map<String, Integer> lemmaCountMap;
+        try {
+            tokens = analyze(textContent);
+            lemmaCountMap = countLemmas(tokens.stream().map(TextToken::lemma).toList());
+        } finally {
+            indexingProgressService.stageFinished(site, Stage.LEMMATIZATION, lemmatizationStart);
+        }
+
+        long persistenceStart = indexingProgressService.stageStarted(site, Stage.PERSISTENCE);
+        try {
+            persistPage(site, pageUrl, statusCode, doc, textContent, tokens, lemmaCountMap);
+        } finally {
+            indexingProgressService.stageFinished(site, Stage.PERSISTENCE, persistenceStart);
+        }
+    }
+
+    // Запись страницы, её HTML, проекции для выдачи, лемм и индекса
+    private void persistPage(Site site, String pageUrl, int statusCode, Document doc, String textContent,
+                             List<TextToken> tokens, Map<String, Integer> lemmaCountMap) {
+        Page page = Page.builder()
+                .site(site)
+                .path(pageUrl.replace(site.getUrl(), ""))
+                .code(statusCode)
+                .build();
+        pageRepository.save(page);
+        siteStatisticsService.pageAdded(site);
+        indexingMetrics.pageIndexed(site.getUrl());
+        pageContentService.save(page, doc.html());
+        // Проекция для выдачи: заголовок, описание, сжатый текст и позиции слов для сниппетов
+        pageProjectionRepository.save(PageProjection.builder()
+                .page(page)
+                .siteId(site.getId())
+                .path(page.getPath())
+                .title(truncate(doc.title(), 1024))
+                .description(truncate(doc.select("meta[name=description]").attr("content"), 1024))
+                .textLength(textContent.length())
+                .text(TextCompression.compress(textContent))
+                .tokens(TokenOffsets.encode(tokens))
+                .build());
+        System.out.println("Индексирована страница: " + pageUrl);
+
+        long saveLemmasStart = indexingProgressService.stageStarted(site, Stage.SAVE_LEMMAS);
+        try {
+            saveLemmasAndIndex(page, lemmaCountMap);
+        } finally {
+            indexingProgressService.stageFinished(site, Stage.SAVE_LEMMAS, saveLemmasStart);
         }
+        indexingMetrics.postingsAdded(site.getUrl(), lemmaCountMap.size());
+        corpusStatisticsService.recordPage(Math.toIntExact(site.getId()), page.getId(), lemmaCountMap);
     }
 
-    // Лемматизация текста
+    // Пауза перед загрузкой страницы: случайная в пределах [minDelayMs, maxDelayMs]
+    private int crawlDelay() {
+        int min = Math.max(0, crawlSettings.getMinDelayMs());
+        int max = Math.max(min, crawlSettings.getMaxDelayMs());
+        return max == min ? min : min + ThreadLocalRandom.current().nextInt(max - min + 1);
+    }
+
+    // Лемматизация текста (используется и при индексации, и при разборе поискового запроса)
     public List<String> getLemmas(String text) {
         List<String> lemmas = new ArrayList<>();
+        for (TextToken token : analyze(text)) {
+            lemmas.add(token.lemma());
+        }
+        return lemmas;
+    }
+
+    // Строка не длиннее колонки таблицы
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
 
-        // Настройки StanfordCoreNLP
-        Properties props = new Properties();
-        props.setProperty("annotators", "tokenize,ssplit,pos,lemma");  // Указываем аннотаторы
-        StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
+    // Лемматизация с позициями слов в тексте
+    public List<TextToken> analyze(String text) {
+        List<TextToken> result = new ArrayList<>();
 
         // Создание объекта Annotation для обработки текста
         Annotation document = new Annotation(text);
-        pipeline.annotate(document);
+        getPipeline().annotate(document);
 
-        // Извлекаем леммы
         // Получаем список токенов и их лемм
         List<CoreLabel> tokens = document.get(edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation.class);
         for (CoreLabel token : tokens) {
-            // Извлекаем лемму каждого токена
-            String lemma = token.lemma();
-            lemmas.add(lemma);
+            // Извлекаем лемму каждого токена; знаки препинания в индекс не попадают
+            String lemma = token.lemma().toLowerCase();
+            if (WORD_PATTERN.matcher(lemma).matches()) {
+                result.add(new TextToken(lemma, token.beginPosition(), token.endPosition()));
+            }
         }
 
-        return lemmas;
+        return result;
+    }
+
+    // Конвейер StanfordCoreNLP создаётся один раз: загрузка моделей занимает секунды
+    private static StanfordCoreNLP getPipeline() {
+        StanfordCoreNLP result = pipeline;
+        if (result == null) {
+            synchronized (IndexingService.class) {
+                result = pipeline;
+                if (result == null) {
+                    // Настройки StanfordCoreNLP
+                    Properties props = new Properties();
+                    props.setProperty("annotators", "tokenize,ssplit,pos,lemma");  // Указываем аннотаторы
+                    pipeline = result = new StanfordCoreNLP(props);
+                }
+            }
+        }
+        return result;
     }
 
     // Подсчёт частоты лемм
-    private Map<String, Integer> countLemmas(List<String> lemmas) {
+    public static Map<String, Integer> countLemmas(List<String> lemmas) {
         Map<String, Integer> lemmaCountMap = new HashMap<>();
         for (String lemma : lemmas) {
             lemmaCountMap.put(lemma, lemmaCountMap.getOrDefault(lemma, 0) + 1);
@@ -303,6 +579,8 @@ public class IndexingService {
                 lemma = new Lemma(lemmaText);
                 lemma.setSiteId(page.getSite().getId());  // Привязываем лемму к сайту
                 lemmaRepository.save(lemma);  // Сохраняем лемму в базе
+                siteStatisticsService.lemmaAdded(page.getSite());
+                indexingMetrics.lemmasAdded(page.getSite().getUrl(), 1);
             } else {
                 // Если лемма уже существует, увеличиваем её частоту
                 lemma.increaseFrequency();
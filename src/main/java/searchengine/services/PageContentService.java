@@ -0,0 +1,251 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import searchengine.config.PageContentSettings;
+import searchengine.model.ContentDictionary;
+import searchengine.model.Page;
+import searchengine.model.PageContent;
+import searchengine.repositories.ContentDictionaryRepository;
+import searchengine.repositories.PageContentRepository;
+import searchengine.search.CompressionDictionary;
+import searchengine.search.TextCompression;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Хранение HTML страниц в сжатом виде. Первые страницы сайта сжимаются без словаря и служат образцами;
+// по ним обучается словарь сайта, после чего образцы пересжимаются с ним, а новые страницы — сразу
+@Service
+public class PageContentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageContentService.class);
+
+    // Прежние версии объявляли page.content как NOT NULL
+    private static final String LEGACY_NULLABLE_SQL = "SELECT IS_NULLABLE FROM information_schema.COLUMNS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'page' AND COLUMN_NAME = 'content'";
+    private static final String LEGACY_RELAX_SQL = "ALTER TABLE page MODIFY content MEDIUMTEXT NULL";
+
+    private static final String LEGACY_BATCH_SQL =
+            "SELECT id, site_id, content FROM page WHERE content IS NOT NULL ORDER BY id LIMIT ?";
+    private static final String MIGRATE_INSERT_SQL = "INSERT INTO page_content (page_id, dictionary_id, length, data) " +
+            "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE page_id = page_id";
+    private static final String MIGRATE_CLEAR_SQL = "UPDATE page SET content = NULL WHERE id = ?";
+
+    private static final String RECOMPRESS_SQL = "UPDATE page_content SET dictionary_id = ?, data = ? WHERE page_id = ?";
+
+    private final PageContentSettings settings;
+    private final PageContentRepository pageContentRepository;
+    private final ContentDictionaryRepository dictionaryRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Словари неизменяемы, поэтому кэшируются по id без ограничения срока
+    private final Map<Long, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private final Map<Long, SiteDictionary> sites = new ConcurrentHashMap<>();
+
+    private final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "page-content-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PageContentService(PageContentSettings settings, PageContentRepository pageContentRepository,
+                              ContentDictionaryRepository dictionaryRepository, JdbcTemplate jdbcTemplate) {
+        this.settings = settings;
+        this.pageContentRepository = pageContentRepository;
+        this.dictionaryRepository = dictionaryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Сохранение HTML уже сохранённой страницы
+    public void save(Page page, String html) {
+        long siteId = page.getSite().getId();
+        SiteDictionary site = sites.computeIfAbsent(siteId, this::loadSite);
+        Compressed compressed = compress(site, page.getId(), html);
+        pageContentRepository.save(PageContent.builder()
+                .page(page)
+                .dictionaryId(compressed.dictionaryId())
+                .length(html.length())
+                .data(compressed.data())
+                .build());
+        trainIfReady(siteId, site);
+    }
+
+    // HTML страницы или null, если он не сохранялся; тело читается и распаковывается только здесь
+    public String load(Page page) {
+        return pageContentRepository.findById(page.getId())
+                .map(content -> TextCompression.decompress(content.getData(), dictionary(content.getDictionaryId())))
+                .orElse(page.getContent());
+    }
+
+    // Страницы сайта удалены перед переиндексацией: словарь обучается заново по новым страницам
+    public void resetSite(long siteId) {
+        SiteDictionary site = sites.remove(siteId);
+        if (site != null) {
+            synchronized (site) {
+                site.samples.clear();
+                if (site.dictionaryId != null) {
+                    dictionaries.remove(site.dictionaryId);
+                }
+            }
+        }
+        dictionaryRepository.deleteBySiteId(siteId);
+    }
+
+    // Обход сайта завершён: словарь обучается по набранным образцам, даже если их меньше
+    // dictionarySamples, чтобы HTML образцов не оставался в памяти до следующего обхода
+    public void siteFinished(long siteId) {
+        SiteDictionary site = sites.get(siteId);
+        if (site == null) {
+            return;
+        }
+        try {
+            train(siteId, site, true);
+        } catch (Exception e) {
+            logger.error("Не удалось обучить словарь сжатия сайта {}", siteId, e);
+        } finally {
+            synchronized (site) {
+                site.samples.clear();
+            }
+        }
+    }
+
+    // Снятие NOT NULL со старой колонки и перенос несжатого HTML в page_content в фоне
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        try {
+            List<String> nullable = jdbcTemplate.queryForList(LEGACY_NULLABLE_SQL, String.class);
+            if (!nullable.isEmpty() && "NO".equals(nullable.get(0))) {
+                jdbcTemplate.execute(LEGACY_RELAX_SQL);
+                logger.info("Колонка page.content сделана необязательной");
+            }
+        } catch (Exception e) {
+            logger.error("Не удалось изменить колонку page.content", e);
+            return;
+        }
+        migrationExecutor.submit(this::migrateLegacyContent);
+    }
+
+    private void migrateLegacyContent() {
+        long start = System.currentTimeMillis();
+        long pages = 0;
+        long original = 0;
+        long stored = 0;
+        Set<Long> migratedSites = new HashSet<>();
+        try {
+            while (true) {
+                List<Map<String, Object>> batch = jdbcTemplate.queryForList(LEGACY_BATCH_SQL,
+                        Math.max(1, settings.getMigrationBatch()));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> row : batch) {
+                    long pageId = ((Number) row.get("id")).longValue();
+                    long siteId = ((Number) row.get("site_id")).longValue();
+                    String html = (String) row.get("content");
+                    SiteDictionary site = sites.computeIfAbsent(siteId, this::loadSite);
+                    Compressed compressed = compress(site, pageId, html);
+                    jdbcTemplate.update(MIGRATE_INSERT_SQL, pageId, compressed.dictionaryId(), html.length(),
+                            compressed.data());
+                    jdbcTemplate.update(MIGRATE_CLEAR_SQL, pageId);
+                    trainIfReady(siteId, site);
+                    migratedSites.add(siteId);
+                    pages++;
+                    original += html.length();
+                    stored += compressed.data().length;
+                }
+            }
+            if (pages > 0) {
+                logger.info("HTML {} страниц перенесён в page_content за {} мс: {} символов -> {} байт",
+                        pages, System.currentTimeMillis() - start, original, stored);
+            }
+        } catch (Exception e) {
+            logger.error("Не удалось перенести HTML страниц в page_content", e);
+        }
+        migratedSites.forEach(this::siteFinished);
+    }
+
+    private Compressed compress(SiteDictionary site, long pageId, String html) {
+        synchronized (site) {
+            if (site.dictionaryId != null) {
+                return new Compressed(site.dictionaryId, TextCompression.compress(html, dictionary(site.dictionaryId)));
+            }
+            if (settings.isDictionary() && !site.disabled && site.samples.size() < settings.getDictionarySamples()) {
+                site.samples.put(pageId, html);
+            }
+            return new Compressed(null, TextCompression.compress(html));
+        }
+    }
+
+    // Образцов набрано: словарь сохраняется, образцы пересжимаются с ним
+    private void trainIfReady(long siteId, SiteDictionary site) {
+        train(siteId, site, false);
+    }
+
+    // force — обучение по всем набранным образцам, сколько бы их ни было
+    private void train(long siteId, SiteDictionary site, boolean force) {
+        synchronized (site) {
+            if (site.dictionaryId != null || site.disabled || !settings.isDictionary() || site.samples.isEmpty()
+                    || (!force && site.samples.size() < settings.getDictionarySamples())) {
+                return;
+            }
+            byte[] data = CompressionDictionary.train(new ArrayList<>(site.samples.values()),
+                    settings.getDictionarySize());
+            if (data.length == 0) {
+                site.samples.clear(); // У страниц нет общих строк, дальше сжатие без словаря
+                site.disabled = true;
+                return;
+            }
+            ContentDictionary dictionary = dictionaryRepository.save(ContentDictionary.builder()
+                    .siteId(siteId)
+                    .data(data)
+                    .build());
+            dictionaries.put(dictionary.getId(), data);
+            site.dictionaryId = dictionary.getId();
+            site.samples.forEach((pageId, html) -> jdbcTemplate.update(RECOMPRESS_SQL, dictionary.getId(),
+                    TextCompression.compress(html, data), pageId));
+            logger.info("Обучен словарь сжатия сайта {}: {} байт по {} страницам",
+                    siteId, data.length, site.samples.size());
+            site.samples.clear();
+        }
+    }
+
+    private byte[] dictionary(Long dictionaryId) {
+        if (dictionaryId == null) {
+            return null;
+        }
+        return dictionaries.computeIfAbsent(dictionaryId, id -> dictionaryRepository.findById(id)
+                .map(ContentDictionary::getData)
+                .orElseThrow(() -> new IllegalStateException("Словарь сжатия " + id + " не найден")));
+    }
+
+    // После перезапуска сайт продолжает сжимать страницы своим последним словарём
+    private SiteDictionary loadSite(long siteId) {
+        SiteDictionary site = new SiteDictionary();
+        dictionaryRepository.findFirstBySiteIdOrderByIdDesc(siteId).ifPresent(dictionary -> {
+            dictionaries.putIfAbsent(dictionary.getId(), dictionary.getData());
+            site.dictionaryId = dictionary.getId();
+        });
+        return site;
+    }
+
+    private record Compressed(Long dictionaryId, byte[] data) {
+    }
+
+    private static final class SiteDictionary {
+        Long dictionaryId;
+        boolean disabled;
+        final Map<Long, String> samples = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,101 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import searchengine.config.SearchAdmissionSettings;
+import searchengine.search.SearchBudget;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Допуск поисковых запросов: не больше maxConcurrent выполняются одновременно, не больше maxQueued ждут,
+// остальные сразу получают отказ, чтобы несколько тяжёлых запросов не занимали все потоки сервера.
+// Запрос выполняется в потоке сервера; ожидание разрешения ограничено сроком запроса
+@Service
+public class SearchAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchAdmissionService.class);
+
+    private final SearchAdmissionSettings settings;
+    // Справедливый семафор: ожидающие запросы получают разрешение в порядке поступления
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+
+    public SearchAdmissionService(SearchAdmissionSettings settings) {
+        this.settings = settings;
+        this.permits = new Semaphore(Math.max(1, settings.getMaxConcurrent()), true);
+    }
+
+    // Выполнение запроса с бюджетом, срок которого отсчитывается с момента поступления
+    public <T> T execute(Function<SearchBudget, T> search) {
+        SearchBudget budget = SearchBudget.of(settings.getDeadlineMs(), settings.getMaxPostings());
+        acquire(budget);
+        inFlight.incrementAndGet();
+        try {
+            return search.apply(budget);
+        } finally {
+            inFlight.decrementAndGet();
+            permits.release();
+            if (budget.exhausted() || budget.expired()) {
+                truncated.increment();
+            }
+        }
+    }
+
+    // Разрешение на выполнение: сразу, после ожидания не дольше оставшегося срока или отказ
+    private void acquire(SearchBudget budget) {
+        try {
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            if (waiting.incrementAndGet() > Math.max(1, settings.getMaxQueued())) {
+                waiting.decrementAndGet();
+                rejected.increment();
+                logger.debug("Поисковый запрос отклонён: выполняется {}, в очереди {}", inFlight.get(),
+                        waiting.get());
+                throw new SearchRejectedException("Сервер поиска перегружен", settings.getRetryAfterSeconds());
+            }
+            try {
+                // Запрос, простоявший в очереди весь срок, не выполняется: клиент его уже не ждёт
+                if (!permits.tryAcquire(budget.remainingMillis(), TimeUnit.MILLISECONDS)) {
+                    expired.increment();
+                    throw new SearchRejectedException("Истёк срок ожидания в очереди поиска",
+                            settings.getRetryAfterSeconds());
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SearchRejectedException("Поисковый запрос прерван", settings.getRetryAfterSeconds());
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int queued() {
+        return waiting.get();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long expired() {
+        return expired.sum();
+    }
+
+    public long truncated() {
+        return truncated.sum();
+    }
+}
@@ -0,0 +1,456 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import searchengine.config.SearchIndexSettings;
+import searchengine.search.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Поисковый индекс из сегментов на диске, разбитый по сайтам и дополняемый по таблице index
+@Service
+public class SearchIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    private static final String SITES_SQL = "SELECT id FROM site";
+
+    private static final String PAGES_SQL =
+            "SELECT id FROM page WHERE site_id = ? AND id > ? AND id < ? ORDER BY id LIMIT ?";
+
+    // Записи индекса упорядочены по странице: каждый список получает страницы по возрастанию id
+    private static final String POSTINGS_SQL =
+            "SELECT i.page_id, l.lemma, i.`rank` FROM `index` i JOIN lemma l ON l.id = i.lemma_id " +
+            "JOIN page p ON p.id = i.page_id WHERE p.site_id = ? AND i.page_id BETWEEN ? AND ? ORDER BY i.page_id";
+
+    private static final String TOKENS_SQL =
+            "SELECT page_id, tokens FROM page_projection WHERE site_id = ? AND page_id BETWEEN ? AND ?";
+
+    // Позиции слов загружаются порциями страниц, чтобы не держать в памяти тексты всего сегмента
+    private static final int POSITIONS_BATCH_PAGES = 1000;
+
+    // Последняя страница индексируемого сайта может быть ещё не дописана
+    private static final String WATERMARKS_SQL =
+            "SELECT p.site_id, MAX(p.id) FROM page p JOIN site s ON s.id = p.site_id " +
+            "WHERE s.status = 'INDEXING' GROUP BY p.site_id";
+
+    private static final String INDEXING_SITES_SQL = "SELECT COUNT(*) FROM site WHERE status = 'INDEXING'";
+
+    private static final String LIVE_PAGES_SQL = "SELECT id FROM page WHERE site_id = ? AND id <= ?";
+
+    private static final Pattern SHARD_DIRECTORY = Pattern.compile("site-(\\d+)");
+
+    // Файлы, которые создаёт сам индекс: сегменты, удаления, манифест и их временные копии.
+    // Остальные файлы в каталоге шарда не трогаются
+    private static final Pattern INDEX_FILE =
+            Pattern.compile("(segment-\\d+\\.seg|deletes-\\d+\\.del|manifest\\.properties)(\\.tmp)?");
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SearchIndexSettings settings;
+    private final Path directory;
+    private final AtomicReference<ShardedIndex> index = new AtomicReference<>();
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    // Увеличивается при каждой замене снимка индекса; по нему сбрасываются кэши результатов
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long lastRefreshMillis;
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-index-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SearchIndexService(JdbcTemplate jdbcTemplate, SearchIndexSettings settings) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settings = settings;
+        this.directory = Paths.get(settings.getPath());
+    }
+
+    // При запуске сегменты только отображаются в память, затем в фоне дописываются новые страницы
+    @EventListener(ApplicationReadyEvent.class)
+    public void openOnStartup() {
+        long start = System.currentTimeMillis();
+        Map<Integer, SegmentedIndex> shards = new HashMap<>();
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> entries = Files.list(directory)) {
+                for (Path entry : entries.toList()) {
+                    Matcher matcher = SHARD_DIRECTORY.matcher(entry.getFileName().toString());
+                    if (Files.isDirectory(entry) && matcher.matches()) {
+                        shards.put(Integer.parseInt(matcher.group(1)), openShard(entry));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Не удалось открыть поисковый индекс в {}", directory.toAbsolutePath(), e);
+        }
+        ShardedIndex opened = new ShardedIndex(shards);
+        setIndex(opened);
+        logger.info("Поисковый индекс открыт за {} мс: {} сайтов, {} сегментов, {} страниц",
+                System.currentTimeMillis() - start, shards.size(), opened.segmentCount(), opened.pageCount(0));
+        requestRefresh();
+    }
+
+    // Текущий снимок индекса или null, если он ещё не открыт
+    public ShardedIndex getIndex() {
+        return index.get();
+    }
+
+    // Поколение текущего снимка: меняется при каждом обновлении индекса
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    // Запрос на дописывание новых страниц; запросы, пришедшие до начала обновления, объединяются
+    public void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            refreshExecutor.submit(this::refresh);
+        }
+    }
+
+    // Пока идёт обход, его страницы дописываются в индекс периодически, не дожидаясь конца обхода;
+    // недописанные страницы отсекает граница по последней странице сайта
+    @Scheduled(fixedDelayString = "${search-index.refresh-interval-ms:30000}")
+    public void refreshWhileIndexing() {
+        if (index.get() == null) {
+            return;
+        }
+        Integer indexing = jdbcTemplate.queryForObject(INDEXING_SITES_SQL, Integer.class);
+        if (indexing != null && indexing > 0) {
+            requestRefresh();
+        }
+    }
+
+    private void refresh() {
+        refreshPending.set(false);
+        long start = System.currentTimeMillis();
+        try {
+            if (index.get() == null) {
+                return; // Индекс ещё не открыт
+            }
+            Map<Integer, Integer> watermarks = findWatermarks();
+            Set<Integer> siteIds = new HashSet<>(jdbcTemplate.queryForList(SITES_SQL, Integer.class));
+
+            // Шарды обновляются по очереди; каждый обновлённый шард сразу становится доступен поиску
+            for (int siteId : siteIds) {
+                SegmentedIndex shard = index.get().shard(siteId);
+                if (shard == null) {
+                    Files.createDirectories(shardDirectory(siteId));
+                    shard = new SegmentedIndex(IndexManifest.EMPTY, List.of(), new BitSet());
+                }
+                SegmentedIndex refreshed = refreshShard(siteId, shard,
+                        watermarks.getOrDefault(siteId, Integer.MAX_VALUE));
+                if (refreshed != shard || index.get().shard(siteId) == null) {
+                    replaceShard(siteId, refreshed);
+                }
+            }
+
+            // Шарды удалённых сайтов
+            for (int siteId : new ArrayList<>(index.get().shards().keySet())) {
+                if (!siteIds.contains(siteId)) {
+                    replaceShard(siteId, null);
+                    deleteDirectory(shardDirectory(siteId));
+                }
+            }
+
+            lastRefreshMillis = System.currentTimeMillis() - start;
+            ShardedIndex result = index.get();
+            logger.info("Поисковый индекс обновлён за {} мс: {} сайтов, {} сегментов, {} страниц, {} записей, " +
+                            "{} байт на запись", lastRefreshMillis, result.shards().size(), result.segmentCount(),
+                    result.pageCount(0), result.postingCount(), String.format("%.2f", result.bytesPerPosting()));
+        } catch (Exception e) {
+            logger.error("Ошибка при обновлении поискового индекса", e);
+        }
+    }
+
+    // Дописывание новых страниц сайта, учёт удалённых и слияние; без изменений возвращается тот же шард
+    private SegmentedIndex refreshShard(int siteId, SegmentedIndex shard, int watermark) throws IOException {
+        Path shardDirectory = shardDirectory(siteId);
+        IndexManifest manifest = shard.manifest();
+        long nextSegment = manifest.nextSegment();
+        List<Segment> segments = new ArrayList<>(shard.segments());
+
+        // Новые страницы записываются в новые сегменты порциями по flushPages
+        int fromPageId = shard.maxPageId();
+        while (true) {
+            Segment flushed = flush(siteId, fromPageId, watermark, segmentPath(shardDirectory, nextSegment));
+            if (flushed == null) {
+                break;
+            }
+            nextSegment++;
+            segments.add(flushed);
+            fromPageId = flushed.maxPageId();
+        }
+
+        BitSet deleted = findDeletedPages(siteId, segments);
+        if (segments.size() == shard.segments().size() && deleted.equals(shard.deleted())) {
+            return shard;
+        }
+        dropDeletedSegments(segments, deleted);
+        SegmentedIndex published = publish(shardDirectory, manifest, segments, deleted, nextSegment);
+
+        // Слияние мелких сегментов выполняется в этом же фоновом потоке
+        return merge(shardDirectory, published);
+    }
+
+    // Запись страниц сайта с id в диапазоне (fromPageId, watermark) в новый сегмент
+    private Segment flush(int siteId, int fromPageId, int watermark, Path path) throws IOException {
+        List<Integer> pages = jdbcTemplate.queryForList(PAGES_SQL, Integer.class,
+                siteId, fromPageId, watermark, settings.getFlushPages());
+        if (pages.isEmpty()) {
+            return null;
+        }
+        int minPageId = pages.get(0);
+        int maxPageId = pages.get(pages.size() - 1);
+        int[] lengths = new int[maxPageId - minPageId + 1];
+
+        Map<String, PostingListBuilder> builders = new HashMap<>();
+        for (int from = 0; from < pages.size(); from += POSITIONS_BATCH_PAGES) {
+            int to = Math.min(from + POSITIONS_BATCH_PAGES, pages.size());
+            int firstPageId = pages.get(from);
+            int lastPageId = pages.get(to - 1);
+            Map<Integer, Map<String, int[]>> positions = loadPositions(siteId, firstPageId, lastPageId);
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(POSTINGS_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                // Потоковое чтение результата драйвером MySQL вместо загрузки всей выборки в память
+                statement.setFetchSize(Integer.MIN_VALUE);
+                statement.setInt(1, siteId);
+                statement.setInt(2, firstPageId);
+                statement.setInt(3, lastPageId);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                int pageId = rs.getInt(1);
+                String lemma = rs.getString(2);
+                float rank = rs.getFloat(3);
+                int[] lemmaPositions = positions.getOrDefault(pageId, Map.of()).getOrDefault(lemma, NO_POSITIONS);
+                builders.computeIfAbsent(lemma, key -> new PostingListBuilder()).add(pageId, rank, lemmaPositions);
+                lengths[pageId - minPageId] += Math.round(rank);
+            });
+        }
+
+        SegmentWriter writer = new SegmentWriter(path, minPageId, maxPageId);
+        for (int pageId : pages) {
+            writer.addPage(pageId, siteId, lengths[pageId - minPageId]);
+        }
+        builders.forEach((lemma, builder) -> writer.addPostings(lemma, builder.build()));
+        return writer.write();
+    }
+
+    // Номера слов каждой леммы на страницах диапазона по сохранённым позициям из page_projection
+    private Map<Integer, Map<String, int[]>> loadPositions(int siteId, int firstPageId, int lastPageId) {
+        Map<Integer, Map<String, int[]>> positions = new HashMap<>();
+        jdbcTemplate.query(TOKENS_SQL, (RowCallbackHandler) rs -> {
+            TokenOffsets tokens = TokenOffsets.decode(rs.getBytes(2));
+            int[] counts = new int[tokens.lemmaCount()];
+            for (int i = 0; i < tokens.size(); i++) {
+                counts[tokens.ordinal(i)]++;
+            }
+            int[][] byOrdinal = new int[counts.length][];
+            for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+                byOrdinal[ordinal] = new int[counts[ordinal]];
+                counts[ordinal] = 0;
+            }
+            for (int i = 0; i < tokens.size(); i++) {
+                int ordinal = tokens.ordinal(i);
+                byOrdinal[ordinal][counts[ordinal]++] = i;
+            }
+            Map<String, int[]> pagePositions = new HashMap<>();
+            for (int ordinal = 0; ordinal < byOrdinal.length; ordinal++) {
+                pagePositions.put(tokens.lemmaAt(ordinal), byOrdinal[ordinal]);
+            }
+            positions.put(rs.getInt(1), pagePositions);
+        }, siteId, firstPageId, lastPageId);
+        return positions;
+    }
+
+    // Граница для каждого индексируемого сайта, до которой все его страницы полностью записаны в таблицу index
+    private Map<Integer, Integer> findWatermarks() {
+        Map<Integer, Integer> watermarks = new HashMap<>();
+        jdbcTemplate.query(WATERMARKS_SQL, (RowCallbackHandler) rs -> watermarks.put(rs.getInt(1), rs.getInt(2)));
+        return watermarks;
+    }
+
+    // Страницы, которые есть в сегментах, но уже удалены из таблицы page (например, при переиндексации)
+    private BitSet findDeletedPages(int siteId, List<Segment> segments) {
+        BitSet deleted = new BitSet();
+        if (segments.isEmpty()) {
+            return deleted;
+        }
+        BitSet live = new BitSet();
+        jdbcTemplate.query(LIVE_PAGES_SQL, (RowCallbackHandler) rs -> live.set(rs.getInt(1)),
+                siteId, segments.get(segments.size() - 1).maxPageId());
+        for (Segment segment : segments) {
+            for (int pageId = segment.minPageId(); pageId <= segment.maxPageId(); pageId++) {
+                if (segment.siteOf(pageId) != 0 && !live.get(pageId)) {
+                    deleted.set(pageId);
+                }
+            }
+        }
+        return deleted;
+    }
+
+    // Сегменты, все страницы которых удалены, отбрасываются без слияния (например, после переиндексации сайта)
+    private static void dropDeletedSegments(List<Segment> segments, BitSet deleted) {
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            int pages = segment.pagesBySite().values().stream().mapToInt(Integer::intValue).sum();
+            BitSet segmentDeleted = deleted.get(segment.minPageId(), segment.maxPageId() + 1);
+            if (segmentDeleted.cardinality() == pages) {
+                deleted.clear(segment.minPageId(), segment.maxPageId() + 1);
+                iterator.remove();
+            }
+        }
+    }
+
+    // Удалённые страницы, которые после слияния ещё остались в сегментах
+    private static BitSet retainIndexed(BitSet deleted, List<Segment> segments) {
+        BitSet retained = new BitSet();
+        SegmentedIndex lookup = new SegmentedIndex(IndexManifest.EMPTY, segments, new BitSet());
+        for (int pageId = deleted.nextSetBit(0); pageId >= 0; pageId = deleted.nextSetBit(pageId + 1)) {
+            if (lookup.siteOf(pageId) != 0) {
+                retained.set(pageId);
+            }
+        }
+        return retained;
+    }
+
+    // Слияние соседних сегментов с наименьшим суммарным объёмом, пока их больше maxSegments
+    private SegmentedIndex merge(Path shardDirectory, SegmentedIndex current) throws IOException {
+        while (current.segments().size() > settings.getMaxSegments()) {
+            List<Segment> segments = new ArrayList<>(current.segments());
+            int window = Math.min(Math.max(2, settings.getMergeFactor()), segments.size());
+            int bestStart = 0;
+            long bestBytes = Long.MAX_VALUE;
+            for (int start = 0; start + window <= segments.size(); start++) {
+                long bytes = 0;
+                for (int i = start; i < start + window; i++) {
+                    bytes += segments.get(i).sizeInBytes();
+                }
+                if (bytes < bestBytes) {
+                    bestBytes = bytes;
+                    bestStart = start;
+                }
+            }
+
+            IndexManifest manifest = current.manifest();
+            List<Segment> merging = segments.subList(bestStart, bestStart + window);
+            Segment merged = SegmentMerger.merge(merging, current.deleted(),
+                    segmentPath(shardDirectory, manifest.nextSegment()));
+            logger.info("Слиты сегменты {} в {}", merging.stream().map(s -> s.path().getFileName()).toList(),
+                    merged.path());
+            merging.clear();
+            segments.add(bestStart, merged);
+
+            current = publish(shardDirectory, manifest, segments, retainIndexed(current.deleted(), segments),
+                    manifest.nextSegment() + 1);
+        }
+        return current;
+    }
+
+    // Запись манифеста шарда; файлы, на которые манифест больше не ссылается, удаляются
+    private SegmentedIndex publish(Path shardDirectory, IndexManifest previous, List<Segment> segments,
+                                   BitSet deleted, long nextSegment) throws IOException {
+        long generation = previous.generation() + 1;
+        String deletes = null;
+        if (!deleted.isEmpty()) {
+            deletes = "deletes-" + generation + ".del";
+            IndexManifest.writeDeletes(shardDirectory.resolve(deletes), deleted);
+        }
+        IndexManifest manifest = new IndexManifest(generation, nextSegment,
+                segments.stream().map(segment -> segment.path().getFileName().toString()).toList(), deletes);
+        manifest.write(shardDirectory);
+        deleteUnreferencedFiles(shardDirectory, manifest);
+        return new SegmentedIndex(manifest, segments, deleted);
+    }
+
+    private void deleteUnreferencedFiles(Path shardDirectory, IndexManifest manifest) {
+        Set<String> referenced = new HashSet<>(manifest.segments());
+        referenced.add(IndexManifest.FILE_NAME);
+        if (manifest.deletes() != null) {
+            referenced.add(manifest.deletes());
+        }
+        try (Stream<Path> files = Files.list(shardDirectory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (!referenced.contains(name) && INDEX_FILE.matcher(name).matches()) {
+                    // Отображённые в память старые сегменты остаются доступны выполняющимся запросам
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить устаревшие файлы индекса в {}", shardDirectory, e);
+        }
+    }
+
+    // Источник данных — таблица index, поэтому повреждённый или устаревший шард строится заново
+    private SegmentedIndex openShard(Path shardDirectory) {
+        try {
+            return SegmentedIndex.open(shardDirectory);
+        } catch (IOException e) {
+            logger.warn("Не удалось открыть шард индекса {}, он будет построен заново", shardDirectory, e);
+            deleteUnreferencedFiles(shardDirectory, IndexManifest.EMPTY);
+            return new SegmentedIndex(IndexManifest.EMPTY, List.of(), new BitSet());
+        }
+    }
+
+    private void deleteDirectory(Path shardDirectory) {
+        deleteUnreferencedFiles(shardDirectory, IndexManifest.EMPTY);
+        try {
+            Files.deleteIfExists(shardDirectory.resolve(IndexManifest.FILE_NAME));
+            Files.deleteIfExists(shardDirectory);
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить шард индекса {}", shardDirectory, e);
+        }
+    }
+
+    // Замена шарда сайта в снимке (null — шард удаляется)
+    private void replaceShard(int siteId, SegmentedIndex shard) {
+        Map<Integer, SegmentedIndex> shards = new HashMap<>(index.get().shards());
+        if (shard == null) {
+            shards.remove(siteId);
+        } else {
+            shards.put(siteId, shard);
+        }
+        setIndex(new ShardedIndex(shards));
+    }
+
+    private void setIndex(ShardedIndex snapshot) {
+        index.set(snapshot);
+        generation.incrementAndGet();
+    }
+
+    private Path shardDirectory(int siteId) {
+        return directory.resolve("site-" + siteId);
+    }
+
+    private static Path segmentPath(Path shardDirectory, long number) {
+        return shardDirectory.resolve(String.format("segment-%06d.seg", number));
+    }
+}
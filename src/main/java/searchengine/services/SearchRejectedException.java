@@ -0,0 +1,16 @@
+package searchengine.services;
+
+// Запрос не принят: очередь поиска заполнена или срок истёк ещё до начала выполнения
+public class SearchRejectedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public SearchRejectedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
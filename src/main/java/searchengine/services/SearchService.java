@@ -0,0 +1,626 @@
+package searchengine.services;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.config.SearchCacheSettings;
+import searchengine.config.SearchIndexSettings;
+import searchengine.dto.statistics.SearchIndexStatistics;
+import searchengine.dto.statistics.SearchResponse;
+import searchengine.dto.statistics.SearchResult;
+import searchengine.model.Lemma;
+import searchengine.model.Page;
+import searchengine.model.PageProjection;
+import searchengine.model.Site;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.PageProjectionRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.search.BlockMaxConjunction.ScoredTerm;
+import searchengine.search.BlockMaxConjunction.TopHits;
+import searchengine.search.*;
+import searchengine.search.QueryParser.ParsedQuery;
+import searchengine.search.TopKCollector.ScoredPage;
+import searchengine.tracing.SearchQueryEvent;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+@Service
+public class SearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchService.class);
+
+    // Леммы, которые встречаются более чем на этой доле страниц, исключаются из запроса
+    private static final double FREQUENCY_THRESHOLD = 0.5;
+
+    // Длина сниппета в символах (примерно три строки выдачи)
+    private static final int SNIPPET_LENGTH = 300;
+
+    // Максимальный размер списка id в условии IN при пересечении списков страниц
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    // Список стоп-слов (можно расширять)
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "и", "на", "к", "с", "по", "в", "не", "да", "так", "ли", "же", "для", "о", "от", "для", "это",
+            "бы", "или", "как", "также", "потому", "что", "перед", "под", "над", "за", "из", "для", "находится", "чтобы"
+    ));
+
+    private final IndexingService indexingService;
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final PageProjectionRepository pageProjectionRepository;
+    private final PageContentService pageContentService;
+    private final SearchIndexService searchIndexService;
+    private final SearchCacheSettings cacheSettings;
+    private final CorpusStatisticsService corpusStatisticsService;
+    private final SuggestService suggestService;
+    private final SearchAdmissionService admissionService;
+
+    // Потоки поиска по шардам сайтов
+    private final ExecutorService searchExecutor;
+
+    // Время выполнения последних запросов
+    private final LatencyRecorder queryLatency = new LatencyRecorder(4096);
+
+    // Ранжированные страницы по набору лемм и сайту: при перелистывании выдача берётся отсюда
+    private final QueryCache<QueryKey, Matches> resultCache;
+
+    public SearchService(IndexingService indexingService, SiteRepository siteRepository,
+                         PageRepository pageRepository, LemmaRepository lemmaRepository,
+                         IndexRepository indexRepository, PageProjectionRepository pageProjectionRepository,
+                         PageContentService pageContentService, SearchIndexService searchIndexService,
+                         SearchCacheSettings cacheSettings, CorpusStatisticsService corpusStatisticsService,
+                         SearchIndexSettings indexSettings, SuggestService suggestService,
+                         SearchAdmissionService admissionService) {
+        this.indexingService = indexingService;
+        this.siteRepository = siteRepository;
+        this.pageRepository = pageRepository;
+        this.lemmaRepository = lemmaRepository;
+        this.indexRepository = indexRepository;
+        this.pageProjectionRepository = pageProjectionRepository;
+        this.pageContentService = pageContentService;
+        this.searchIndexService = searchIndexService;
+        this.cacheSettings = cacheSettings;
+        this.corpusStatisticsService = corpusStatisticsService;
+        this.suggestService = suggestService;
+        this.admissionService = admissionService;
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private int number;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "search-" + ++number);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        this.searchExecutor = Executors.newFixedThreadPool(Math.max(1, indexSettings.getSearchThreads()), threadFactory);
+        this.resultCache = new QueryCache<>(cacheSettings.getMaxEntries(), cacheSettings.getTtlSeconds() * 1000);
+    }
+
+    // Поиск в пределах бюджета запроса: по его исчерпании выдача собирается из найденного и помечается неполной
+    @Transactional(readOnly = true)
+    public SearchResponse search(String query, String site, int offset, int limit, String cursor,
+                                 SearchBudget budget) {
+        long start = System.nanoTime();
+        // Событие JFR запроса; поля заполняются по ходу поиска, запись — только при включённом JFR
+        SearchQueryEvent event = new SearchQueryEvent();
+        event.begin();
+        event.query = query;
+        event.site = site;
+        try {
+            SearchResponse response = doSearch(query, site, offset, limit, cursor, budget, event);
+            event.totalHits = response.getCount();
+            event.results = response.getData() == null ? 0 : response.getData().size();
+            event.partial = response.isPartial();
+            return response;
+        } finally {
+            queryLatency.record(System.nanoTime() - start);
+            event.postingsScanned = budget.scanned();
+            event.commit();
+        }
+    }
+
+    // Сведения о поисковом индексе и времени выполнения запросов
+    public SearchIndexStatistics getIndexStatistics() {
+        SearchIndexStatistics statistics = new SearchIndexStatistics();
+        ShardedIndex index = searchIndexService.getIndex();
+        statistics.setReady(index != null);
+        if (index != null) {
+            statistics.setShards(index.shards().size());
+            statistics.setSegments(index.segmentCount());
+            statistics.setIndexBytes(index.sizeInBytes());
+            statistics.setPages(index.pageCount(0));
+            statistics.setTerms(index.termCount());
+            statistics.setPostings(index.postingCount());
+            statistics.setBytesPerPosting(index.bytesPerPosting());
+        }
+        statistics.setLastRefreshMs(searchIndexService.getLastRefreshMillis());
+        statistics.setQueryP50Ms(queryLatency.percentileMillis(50));
+        statistics.setQueryP99Ms(queryLatency.percentileMillis(99));
+        statistics.setCacheEntries(resultCache.size());
+        statistics.setCacheHits(resultCache.hits());
+        statistics.setCacheMisses(resultCache.misses());
+        statistics.setCacheHitRate(resultCache.hitRate());
+        statistics.setSearchesInFlight(admissionService.inFlight());
+        statistics.setSearchesQueued(admissionService.queued());
+        statistics.setSearchesRejected(admissionService.rejected());
+        statistics.setSearchesExpired(admissionService.expired());
+        statistics.setSearchesTruncated(admissionService.truncated());
+        return statistics;
+    }
+
+    private SearchResponse doSearch(String query, String site, int offset, int limit, String cursor,
+                                    SearchBudget budget, SearchQueryEvent event) {
+        // Проверка на пустой запрос
+        if (query == null || query.trim().isEmpty()) {
+            return new SearchResponse(false, "Задан пустой поисковый запрос", 0, Collections.emptyList());
+        }
+
+        // Разбиваем запрос на слова, фразы и условия NEAR, преобразуем слова в леммы и исключаем стоп-слова
+        long parseStart = System.nanoTime();
+        QueryPlan plan = processQuery(query);
+        event.parseTime = System.nanoTime() - parseStart;
+        event.lemmaCount = plan.lemmas().size();
+
+        // Если нет валидных лемм
+        if (plan.lemmas().isEmpty()) {
+            return new SearchResponse(false, "По вашему запросу ничего не найдено", 0, Collections.emptyList());
+        }
+        if (plan.didYouMean() != null) {
+            logger.debug("Запрос «{}» исправлен на «{}»", query, plan.didYouMean());
+        }
+
+        // Проверка на отсутствие индекса для указанного сайта
+        Site siteEntity = null;
+        if (site != null && !site.isBlank()) {
+            siteEntity = siteRepository.findByUrl(site);
+            if (siteEntity == null) {
+                return new SearchResponse(false, "Указанный сайт не найден в индексе", 0, Collections.emptyList());
+            }
+        }
+
+        // С курсором выдача продолжается сразу после последней показанной страницы, offset не учитывается
+        SearchCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = SearchCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return new SearchResponse(false, "Некорректный курсор выдачи", 0, Collections.emptyList());
+            }
+        }
+        int pageSize = Math.max(1, limit);
+
+        // В кучу отбираются лучшие offset + limit страниц, остальные не сортируются;
+        // с курсором — limit + 1 страниц после него: лишняя показывает, есть ли следующая страница
+        int from = after == null ? Math.max(0, offset) : 0;
+        int k = (int) Math.min(Integer.MAX_VALUE - 1, (long) from + pageSize) + (after == null ? 0 : 1);
+
+        // Поколение читается до снимка: результат по более новому снимку не попадёт в кэш под старым поколением
+        long generation = searchIndexService.getGeneration();
+        ShardedIndex index = searchIndexService.getIndex();
+        long scoringStart = System.nanoTime();
+        Matches matches;
+        if (index != null) {
+            // Ищем по сегментам индекса; запоминаем не меньше depth страниц, чтобы следующие страницы выдачи брались из кэша
+            QueryKey key = new QueryKey(List.copyOf(new TreeSet<>(plan.lemmas())), plan.constraints(),
+                    siteEntity == null ? 0 : siteEntity.getId());
+            matches = resultCache.get(key, generation);
+            if (after != null) {
+                // Страница после курсора берётся из кэша, если она целиком в нём; иначе отбирается заново
+                int position = matches == null ? -1 : matches.positionAfter(after.last());
+                if (position >= 0 && matches.covers(position + k)) {
+                    from = position;
+                    event.cacheHit = true;
+                } else {
+                    matches = findInIndex(index, plan, siteEntity, k, after.last(), budget);
+                }
+            } else if (matches == null || !matches.covers(k)) {
+                matches = findInIndex(index, plan, siteEntity, Math.max(k, cacheSettings.getDepth()), null, budget);
+                if (!matches.partial()) {
+                    // Неполный ответ по истечении срока не кэшируется: следующий запрос может успеть целиком
+                    resultCache.put(key, matches, generation);
+                }
+            } else {
+                event.cacheHit = true;
+            }
+        } else {
+            // Индекс не открыт — ищем по таблицам lemma и index
+            matches = findInDatabase(plan, siteEntity, k, after == null ? null : after.last());
+        }
+        event.scoringTime = System.nanoTime() - scoringStart;
+        List<ScoredPage> topPages = matches.hits().pages();
+        if (topPages.size() <= from) {
+            // Пустой список, если нет результатов или выдача закончилась
+            SearchResponse response = new SearchResponse(true, null, matches.hits().totalHits(), Collections.emptyList());
+            response.setPartial(matches.partial());
+            response.setDidYouMean(plan.didYouMean());
+            return response;
+        }
+
+        // Относительная релевантность считается от лучшей страницы всей выдачи, она передаётся в курсоре
+        double maxAbsoluteRelevance = after != null ? after.maxScore() : topPages.get(0).score();
+
+        // Пагинация: страницы загружаются из базы только для запрошенного фрагмента выдачи
+        List<ScoredPage> pageSlice = topPages.subList(from, Math.min(from + pageSize, topPages.size()));
+        long snippetStart = System.nanoTime();
+        List<SearchResult> results = buildResults(pageSlice, maxAbsoluteRelevance, matches.lemmas());
+        event.snippetTime = System.nanoTime() - snippetStart;
+
+        SearchResponse response = new SearchResponse(true, null, matches.hits().totalHits(), results);
+        response.setPartial(matches.partial());
+        response.setDidYouMean(plan.didYouMean());
+        int shown = from + pageSlice.size();
+        if (topPages.size() > shown || after == null && matches.hits().totalHits() > shown) {
+            response.setNextCursor(SearchCursor.after(pageSlice.get(pageSlice.size() - 1), maxAbsoluteRelevance).encode());
+        }
+        return response;
+    }
+
+    // Метод для обработки поискового запроса: леммы получаем так же, как при индексации страниц
+    private QueryPlan processQuery(String query) {
+        ParsedQuery parsed = QueryParser.parse(query);
+        Set<String> lemmas = new HashSet<>();
+        Set<String> required = new HashSet<>();
+        List<PositionMatcher> matchers = new ArrayList<>();
+        List<String> constraints = new ArrayList<>();
+
+        // Лемма обычного слова, которой нет в словаре, ничего не найдёт: она заменяется самой частой
+        // леммой в пределах одной-двух правок. Слова заменяются с конца, чтобы не сдвигать позиции
+        StringBuilder correctedText = new StringBuilder(parsed.text());
+        boolean corrected = false;
+        List<TextToken> textTokens = parsed.text().isBlank() ? List.of() : indexingService.analyze(parsed.text());
+        for (int i = textTokens.size() - 1; i >= 0; i--) {
+            TextToken token = textTokens.get(i);
+            if (STOP_WORDS.contains(token.lemma())) {
+                continue;
+            }
+            String correction = suggestService.correct(token.lemma());
+            if (correction != null) {
+                correctedText.replace(token.start(), token.end(), correction);
+                corrected = true;
+            }
+            lemmas.add(correction != null ? correction : token.lemma());
+        }
+
+        // Фраза: леммы идут подряд; стоп-слова не ищутся, но сохраняют расстояние между словами
+        for (String phrase : parsed.phrases()) {
+            List<TextToken> tokens = indexingService.analyze(phrase);
+            List<String> phraseLemmas = new ArrayList<>();
+            List<Integer> offsets = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (!STOP_WORDS.contains(tokens.get(i).lemma())) {
+                    phraseLemmas.add(tokens.get(i).lemma());
+                    offsets.add(i);
+                }
+            }
+            lemmas.addAll(phraseLemmas);
+            if (phraseLemmas.size() > 1) {
+                required.addAll(phraseLemmas);
+                matchers.add(PositionMatcher.phrase(phraseLemmas, offsets.stream().mapToInt(Integer::intValue).toArray()));
+                constraints.add("\"" + phraseLemmas + offsets + "\"");
+            }
+        }
+
+        // NEAR/k: две леммы в любом порядке не дальше k слов друг от друга
+        for (QueryParser.Near near : parsed.nears()) {
+            List<String> left = getQueryLemmas(near.left());
+            List<String> right = getQueryLemmas(near.right());
+            lemmas.addAll(left);
+            lemmas.addAll(right);
+            if (!left.isEmpty() && !right.isEmpty()) {
+                required.add(left.get(0));
+                required.add(right.get(0));
+                matchers.add(PositionMatcher.near(left.get(0), right.get(0), near.distance()));
+                constraints.add(left.get(0) + " NEAR/" + near.distance() + " " + right.get(0));
+            }
+        }
+
+        // Исправленный запрос: фразы и NEAR не исправляются и возвращаются как были
+        String didYouMean = null;
+        if (corrected) {
+            StringJoiner joiner = new StringJoiner(" ");
+            joiner.add(correctedText.toString().trim());
+            parsed.phrases().forEach(phrase -> joiner.add("\"" + phrase + "\""));
+            parsed.nears().forEach(near -> joiner.add(near.left() + " NEAR/" + near.distance() + " " + near.right()));
+            didYouMean = joiner.toString().trim();
+        }
+        return new QueryPlan(lemmas, required, PositionMatcher.all(matchers), String.join(" ", constraints),
+                didYouMean);
+    }
+
+    // Леммы текста без стоп-слов
+    private List<String> getQueryLemmas(String text) {
+        if (text.isBlank()) {
+            return List.of();
+        }
+        return indexingService.getLemmas(text).stream()
+                .filter(lemma -> !STOP_WORDS.contains(lemma))  // Фильтрация стоп-слов
+                .toList();
+    }
+
+    // Поиск по шардам сайтов. Частоты лемм, число страниц и средняя длина считаются по всем шардам запроса,
+    // поэтому оценки страниц разных сайтов сравнимы и результаты шардов сливаются без пересчёта.
+    // Они берутся из одного снимка статистики корпуса: он учитывает каждую записанную страницу, а сегменты
+    // дописываются только при обновлении индекса. Пока снимок не загружен, используются данные сегментов
+    private Matches findInIndex(ShardedIndex index, QueryPlan plan, Site site, int k, ScoredPage after,
+                                SearchBudget budget) {
+        int siteId = site == null ? 0 : Math.toIntExact(site.getId());
+        List<SegmentedIndex> shards = siteId == 0
+                ? List.copyOf(index.shards().values())
+                : Optional.ofNullable(index.shard(siteId)).stream().toList();
+        CorpusStatistics corpus = corpusStatisticsService.getSnapshot();
+        boolean fromCorpus = corpus.pageCount(siteId) > 0;
+
+        List<QueryLemma> queryLemmas = new ArrayList<>();
+        for (String lemma : plan.lemmas()) {
+            long frequency = fromCorpus
+                    ? corpus.documentFrequency(lemma, siteId)
+                    : index.documentFrequency(lemma, siteId);
+            if (frequency == 0) {
+                // Леммы нет в индексе — страниц со всеми леммами запроса быть не может
+                return Matches.EMPTY;
+            }
+            queryLemmas.add(new QueryLemma(lemma, List.of(), frequency));
+        }
+
+        long totalPages = fromCorpus ? corpus.pageCount(siteId) : index.pageCount(siteId);
+        List<QueryLemma> sortedLemmas = filterFrequentLemmas(queryLemmas, totalPages, plan.required());
+        Map<String, Double> idf = sortedLemmas.stream()
+                .collect(Collectors.toMap(QueryLemma::lemma, lemma -> Bm25.idf(lemma.frequency(), totalPages)));
+        Bm25 bm25 = Bm25.of(fromCorpus ? corpus.averagePageLength(siteId) : index.averagePageLength(siteId));
+
+        List<Callable<TopHits>> tasks = new ArrayList<>();
+        for (SegmentedIndex shard : shards) {
+            List<ScoredTerm> terms = new ArrayList<>();
+            for (QueryLemma lemma : sortedLemmas) {
+                Postings postings = shard.postings(lemma.lemma());
+                if (postings == null) {
+                    break; // В шарде нет страниц с этой леммой
+                }
+                terms.add(new ScoredTerm(lemma.lemma(), postings, idf.get(lemma.lemma())));
+            }
+            if (terms.size() == sortedLemmas.size()) {
+                tasks.add(() -> BlockMaxConjunction.search(terms, pageId -> shard.siteOf(pageId) != 0,
+                        plan.matcher(), shard::pageLength, bm25, k, after, budget));
+            }
+        }
+        return scatter(tasks, lemmaSet(sortedLemmas), k, budget);
+    }
+
+    // Параллельный поиск по шардам до срока запроса; шарды, не успевшие к сроку, прерываются,
+    // а ответ собирается из остальных и помечается неполным
+    private Matches scatter(List<Callable<TopHits>> tasks, Set<String> lemmas, int k, SearchBudget budget) {
+        if (tasks.isEmpty()) {
+            return new Matches(lemmas, Matches.EMPTY.hits(), k, false);
+        }
+        if (tasks.size() == 1) {
+            // Один шард ищется в потоке запроса
+            try {
+                TopHits hits = tasks.get(0).call();
+                return new Matches(lemmas, hits, k, hits.truncated());
+            } catch (Exception e) {
+                throw new IllegalStateException("Ошибка поиска по индексу", e);
+            }
+        }
+        List<TopHits> parts = new ArrayList<>(tasks.size());
+        boolean partial = false;
+        try {
+            for (Future<TopHits> future : searchExecutor.invokeAll(tasks, budget.remainingMillis(),
+                    TimeUnit.MILLISECONDS)) {
+                if (future.isCancelled()) {
+                    partial = true;
+                    continue;
+                }
+                try {
+                    parts.add(future.get());
+                } catch (ExecutionException e) {
+                    logger.error("Ошибка поиска по шарду индекса", e.getCause());
+                    partial = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            partial = true;
+        }
+        TopHits merged = TopHits.merge(parts, k);
+        return new Matches(lemmas, merged, k, partial || merged.truncated());
+    }
+
+    // Поиск по таблицам lemma и index; частоты и число страниц берутся из снимка статистики корпуса.
+    // Позиций слов в таблицах нет, поэтому фразы и NEAR здесь ищутся как обычные слова
+    private Matches findInDatabase(QueryPlan plan, Site site, int k, ScoredPage after) {
+        Set<String> lemmas = plan.lemmas();
+        CorpusStatistics corpus = corpusStatisticsService.getSnapshot();
+        int siteId = site == null ? 0 : Math.toIntExact(site.getId());
+
+        // Находим леммы запроса в индексе вместе с их частотой
+        List<QueryLemma> queryLemmas = findQueryLemmas(lemmas, corpus, siteId);
+
+        // Если какой-то леммы нет в индексе, страниц со всеми леммами запроса быть не может
+        if (queryLemmas.size() < lemmas.size()) {
+            return Matches.EMPTY;
+        }
+
+        // Исключаем слишком частые леммы и сортируем оставшиеся по возрастанию частоты
+        long totalPages = corpus.pageCount(siteId);
+        List<QueryLemma> sortedLemmas = filterFrequentLemmas(queryLemmas, totalPages, plan.required());
+
+        // Пересекаем списки страниц, начиная с самой редкой леммы
+        Set<Long> pageIds = findPageIds(sortedLemmas, site);
+        return new Matches(lemmaSet(sortedLemmas), rankInDatabase(sortedLemmas, pageIds, totalPages, k, after), k,
+                false);
+    }
+
+    // Релевантность BM25 по рангам из таблицы index; длины страниц в базе не хранятся, поэтому без нормализации
+    private TopHits rankInDatabase(List<QueryLemma> sortedLemmas, Set<Long> pageIds, long totalPages, int k,
+                                   ScoredPage after) {
+        Map<String, Double> idf = sortedLemmas.stream()
+                .collect(Collectors.toMap(QueryLemma::lemma, lemma -> Bm25.idf(lemma.frequency(), totalPages)));
+        List<Integer> lemmaIds = sortedLemmas.stream().flatMap(lemma -> lemma.ids().stream()).toList();
+        Bm25 bm25 = Bm25.withoutLengthNorm();
+
+        Map<Long, Double> scores = new HashMap<>();
+        List<Long> candidates = new ArrayList<>(pageIds);
+        for (int from = 0; from < candidates.size(); from += IN_CLAUSE_CHUNK) {
+            List<Long> chunk = candidates.subList(from, Math.min(from + IN_CLAUSE_CHUNK, candidates.size()));
+            for (IndexRepository.LemmaRank row : indexRepository.findRanks(lemmaIds, chunk)) {
+                double score = bm25.score(Math.round(row.getRank()), 0, idf.get(row.getLemma()));
+                scores.merge(row.getPageId(), score, Double::sum);
+            }
+        }
+
+        TopKCollector top = new TopKCollector(k, after);
+        scores.forEach((pageId, score) -> top.offer(Math.toIntExact(pageId), score));
+        return new TopHits(top.sorted(), pageIds.size(), true);
+    }
+
+    private static Set<String> lemmaSet(List<QueryLemma> queryLemmas) {
+        return queryLemmas.stream().map(QueryLemma::lemma).collect(Collectors.toSet());
+    }
+
+    // Поиск строк лемм запроса в таблице lemma; число страниц с леммой берётся из статистики корпуса
+    private List<QueryLemma> findQueryLemmas(Set<String> lemmas, CorpusStatistics corpus, int siteId) {
+        Map<String, List<Lemma>> rowsByLemma = lemmaRepository.findByLemmaIn(lemmas).stream()
+                .collect(Collectors.groupingBy(Lemma::getLemma));
+
+        List<QueryLemma> queryLemmas = new ArrayList<>();
+        for (Map.Entry<String, List<Lemma>> entry : rowsByLemma.entrySet()) {
+            List<Integer> ids = entry.getValue().stream().map(Lemma::getId).toList();
+            queryLemmas.add(new QueryLemma(entry.getKey(), ids, corpus.documentFrequency(entry.getKey(), siteId)));
+        }
+        return queryLemmas;
+    }
+
+    // Исключение лемм, встречающихся на слишком большом числе страниц; леммы фраз и NEAR остаются всегда
+    private List<QueryLemma> filterFrequentLemmas(List<QueryLemma> queryLemmas, long totalPages,
+                                                  Set<String> required) {
+        List<QueryLemma> sortedLemmas = queryLemmas.stream()
+                .sorted(Comparator.comparingLong(QueryLemma::frequency))
+                .toList();
+
+        List<QueryLemma> filteredLemmas = sortedLemmas.stream()
+                .filter(lemma -> lemma.frequency() <= FREQUENCY_THRESHOLD * totalPages
+                        || required.contains(lemma.lemma()))
+                .toList();
+
+        // Если частыми оказались все леммы (например, в маленьком индексе), ищем по самой редкой
+        if (filteredLemmas.isEmpty()) {
+            logger.debug("Все леммы запроса превышают порог частоты, используется самая редкая: {}",
+                    sortedLemmas.get(0).lemma());
+            return List.of(sortedLemmas.get(0));
+        }
+        return filteredLemmas;
+    }
+
+    // Пересечение списков страниц от самой редкой леммы к самой частой с ранним выходом
+    private Set<Long> findPageIds(List<QueryLemma> sortedLemmas, Site site) {
+        Iterator<QueryLemma> iterator = sortedLemmas.iterator();
+        QueryLemma rarest = iterator.next();
+
+        // Фильтр по сайту применяется уже при выборке первого (самого короткого) списка
+        Set<Long> pageIds = new HashSet<>(site == null
+                ? indexRepository.findPageIdsByLemmaIds(rarest.ids())
+                : indexRepository.findPageIdsByLemmaIdsAndSiteId(rarest.ids(), site.getId()));
+
+        while (iterator.hasNext() && !pageIds.isEmpty()) {
+            QueryLemma lemma = iterator.next();
+            Set<Long> intersection = new HashSet<>();
+            List<Long> candidates = new ArrayList<>(pageIds);
+            for (int from = 0; from < candidates.size(); from += IN_CLAUSE_CHUNK) {
+                List<Long> chunk = candidates.subList(from, Math.min(from + IN_CLAUSE_CHUNK, candidates.size()));
+                intersection.addAll(indexRepository.findPageIdsByLemmaIdsAmong(lemma.ids(), chunk));
+            }
+            pageIds = intersection;
+        }
+        return pageIds;
+    }
+
+    // Формирование результатов поиска для страниц текущего фрагмента выдачи
+    private List<SearchResult> buildResults(List<ScoredPage> pageSlice, double maxAbsoluteRelevance,
+                                            Set<String> lemmas) {
+        // Одним запросом читаются проекции страниц выдачи; сущности Page и HTML не загружаются
+        List<Long> ids = pageSlice.stream().map(page -> (long) page.pageId()).toList();
+        Map<Long, PageProjection> projections = pageProjectionRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(PageProjection::getPageId, Function.identity()));
+        Map<Long, Site> sites = siteRepository.findAllById(projections.values().stream()
+                        .map(PageProjection::getSiteId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Site::getId, Function.identity()));
+
+        // Страницы, проиндексированные до появления проекций, строятся по HTML, как раньше
+        List<Long> missing = ids.stream().filter(id -> !projections.containsKey(id)).toList();
+        Map<Long, Page> legacyPages = missing.isEmpty() ? Map.of() : pageRepository.findAllById(missing).stream()
+                .collect(Collectors.toMap(Page::getId, Function.identity()));
+
+        List<SearchResult> results = new ArrayList<>();
+        for (ScoredPage relevance : pageSlice) {
+            long pageId = relevance.pageId();
+            double relativeRelevance = relevance.score() / maxAbsoluteRelevance;
+            PageProjection projection = projections.get(pageId);
+            if (projection != null) {
+                Site site = sites.get(projection.getSiteId());
+                if (site == null) {
+                    continue; // Сайт удалён после построения выдачи
+                }
+                String snippet = SnippetBuilder.build(TextCompression.decompress(projection.getText()),
+                        TokenOffsets.decode(projection.getTokens()), lemmas, SNIPPET_LENGTH);
+                results.add(new SearchResult(site.getUrl(), site.getName(), projection.getPath(),
+                        projection.getTitle(), snippet, relativeRelevance));
+                continue;
+            }
+            Page page = legacyPages.get(pageId);
+            if (page == null) {
+                continue; // Страница удалена после построения выдачи
+            }
+            String html = pageContentService.load(page);
+            if (html == null) {
+                continue; // Страница сохранена без HTML
+            }
+            Document doc = Jsoup.parse(html);
+            String snippet = SnippetBuilder.build(doc.text(), TokenOffsets.of(indexingService.analyze(doc.text())),
+                    lemmas, SNIPPET_LENGTH);
+            results.add(new SearchResult(page.getSite().getUrl(), page.getSite().getName(), page.getPath(),
+                    doc.title(), snippet, relativeRelevance));
+        }
+        return results;
+    }
+
+    // Лемма запроса: её строки в таблице lemma и суммарная частота
+    private record QueryLemma(String lemma, List<Integer> ids, long frequency) {
+    }
+
+    // Лучшие depth найденных страниц и леммы, по которым шёл поиск; partial — не все шарды успели к сроку
+    private record Matches(Set<String> lemmas, TopHits hits, int depth, boolean partial) {
+        static final Matches EMPTY = new Matches(Set.of(), new TopHits(List.of(), 0, true), Integer.MAX_VALUE, false);
+
+        // Хватает ли отобранных страниц для выдачи первых k результатов
+        boolean covers(int k) {
+            return depth >= k || hits.pages().size() < depth;
+        }
+
+        // Номер первой отобранной страницы, идущей в выдаче после last, или -1, если last среди них нет
+        int positionAfter(ScoredPage last) {
+            int position = Collections.binarySearch(hits.pages(), last, TopKCollector.BEST_FIRST);
+            return position >= 0 ? position + 1 : -1;
+        }
+    }
+
+    // Ключ кэша: отсортированные леммы запроса, условия на позиции и id сайта (0 — все сайты)
+    private record QueryKey(List<String> lemmas, String constraints, long siteId) {
+    }
+
+    // Разобранный запрос: все леммы, леммы фраз и NEAR, проверка их позиций и исправленный текст запроса
+    private record QueryPlan(Set<String> lemmas, Set<String> required, PositionMatcher matcher,
+                             String constraints, String didYouMean) {
+    }
+}
@@ -0,0 +1,199 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import searchengine.config.SitesList;
+import searchengine.dto.statistics.DetailedStatisticsItem;
+import searchengine.dto.statistics.StatisticsData;
+import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.dto.statistics.TotalStatistics;
+import searchengine.model.IndexStatus;
+import searchengine.model.Site;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Статистика сайтов для панели управления: счётчики страниц и лемм, статус и ошибка каждого сайта.
+// Индексатор обновляет их в памяти, сверка с базой выполняется при запуске и по таймеру,
+// а /api/statistics отдаёт готовый снимок без запросов к базе
+@Service
+public class SiteStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SiteStatisticsService.class);
+
+    private static final String RECONCILE_SQL = "SELECT s.url, s.status, s.status_time, s.last_error, " +
+            "(SELECT COUNT(*) FROM page p WHERE p.site_id = s.id), " +
+            "(SELECT COUNT(*) FROM lemma l WHERE l.site_id = s.id) FROM site s";
+
+    private static final String NOT_INDEXED_ERROR = "Сайт ещё не индексировался";
+
+    private final SitesList sitesList;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Счётчики по адресу сайта: адрес известен и до того, как сайт сохранён в базе
+    private final Map<String, SiteCounters> counters = new ConcurrentHashMap<>();
+    // Сайты, задачи индексации которых запущены и ещё не завершились
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    // Любое изменение увеличивает версию; снимок пересобирается при первом чтении после изменения
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(-1, null);
+
+    public SiteStatisticsService(SitesList sitesList, JdbcTemplate jdbcTemplate) {
+        this.sitesList = sitesList;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Текущий снимок; не изменяется после публикации
+    public StatisticsResponse getSnapshot() {
+        Snapshot current = snapshot;
+        long currentVersion = version.get();
+        if (current.version() == currentVersion) {
+            return current.response();
+        }
+        StatisticsResponse response = build();
+        snapshot = new Snapshot(currentVersion, response);
+        return response;
+    }
+
+    // Статус, время статуса или ошибка сайта изменились и сохранены в базе
+    public void siteUpdated(Site site) {
+        SiteCounters stats = countersOf(site.getUrl());
+        stats.status = site.getStatus() == null ? null : site.getStatus().name();
+        stats.statusTime = toMillis(site.getStatusTime());
+        stats.lastError = site.getLastError();
+        version.incrementAndGet();
+    }
+
+    public void pageAdded(Site site) {
+        countersOf(site.getUrl()).pages.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    public void lemmaAdded(Site site) {
+        countersOf(site.getUrl()).lemmas.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    // Страница удалена перед повторной индексацией; lemmas — удалённые вместе с ней леммы
+    public void pageRemoved(Site site, int lemmas) {
+        SiteCounters stats = countersOf(site.getUrl());
+        stats.pages.decrementAndGet();
+        stats.lemmas.addAndGet(-lemmas);
+        version.incrementAndGet();
+    }
+
+    // Страницы и леммы сайта удалены перед переиндексацией
+    public void siteCleared(Site site) {
+        SiteCounters stats = countersOf(site.getUrl());
+        stats.pages.set(0);
+        stats.lemmas.set(0);
+        version.incrementAndGet();
+    }
+
+    // Задача индексации сайта поставлена в очередь или начата
+    public void jobStarted(Site site) {
+        running.add(site.getUrl());
+        version.incrementAndGet();
+    }
+
+    // Задача индексации сайта завершилась: успешно, с ошибкой или остановкой
+    public void jobFinished(Site site) {
+        running.remove(site.getUrl());
+        version.incrementAndGet();
+    }
+
+    // Сверка с базой: первый запуск сразу после старта приложения, далее по таймеру.
+    // Изменения, внесённые индексатором во время запроса, сохраняются: счётчик сдвигается на разницу
+    @Scheduled(fixedDelayString = "${statistics.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, int[]> before = new HashMap<>();
+            counters.forEach((url, site) -> before.put(url, new int[]{site.pages.get(), site.lemmas.get()}));
+            jdbcTemplate.query(RECONCILE_SQL, (RowCallbackHandler) rs -> {
+                String url = rs.getString(1);
+                SiteCounters site = countersOf(url);
+                int[] seen = before.getOrDefault(url, new int[2]);
+                site.pages.addAndGet(rs.getInt(5) - seen[0]);
+                site.lemmas.addAndGet(rs.getInt(6) - seen[1]);
+                site.status = rs.getString(2);
+                Timestamp statusTime = rs.getTimestamp(3);
+                site.statusTime = statusTime == null ? 0 : statusTime.getTime();
+                site.lastError = rs.getString(4);
+            });
+            version.incrementAndGet();
+            logger.debug("Статистика сайтов сверена с базой за {} мс", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Не удалось сверить статистику сайтов с базой", e);
+        }
+    }
+
+    // Сайты выводятся в порядке конфигурации; сайт, которого ещё нет в базе, показывается как FAILED
+    private StatisticsResponse build() {
+        TotalStatistics total = new TotalStatistics();
+        total.setSites(sitesList.getSites().size());
+        total.setIndexing(!running.isEmpty());
+
+        List<DetailedStatisticsItem> detailed = new ArrayList<>();
+        for (searchengine.config.Site configSite : sitesList.getSites()) {
+            SiteCounters site = counters.get(configSite.getUrl());
+            DetailedStatisticsItem item = new DetailedStatisticsItem();
+            item.setName(configSite.getName());
+            item.setUrl(configSite.getUrl());
+            if (site == null || site.status == null) {
+                item.setStatus(IndexStatus.FAILED.name());
+                item.setError(NOT_INDEXED_ERROR);
+            } else {
+                item.setStatus(site.status);
+                item.setStatusTime(site.statusTime);
+                item.setError(site.lastError == null ? "" : site.lastError);
+                item.setPages(site.pages.get());
+                item.setLemmas(site.lemmas.get());
+            }
+            total.setPages(total.getPages() + item.getPages());
+            total.setLemmas(total.getLemmas() + item.getLemmas());
+            detailed.add(item);
+        }
+
+        StatisticsData data = new StatisticsData();
+        data.setTotal(total);
+        data.setDetailed(List.copyOf(detailed));
+        StatisticsResponse response = new StatisticsResponse();
+        response.setStatistics(data);
+        response.setResult(true);
+        return response;
+    }
+
+    private SiteCounters countersOf(String url) {
+        return counters.computeIfAbsent(url, key -> new SiteCounters());
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? 0 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Snapshot(long version, StatisticsResponse response) {
+    }
+
+    private static final class SiteCounters {
+        final AtomicInteger pages = new AtomicInteger();
+        final AtomicInteger lemmas = new AtomicInteger();
+        volatile String status;
+        volatile long statusTime;
+        volatile String lastError;
+    }
+}
@@ -0,0 +1,112 @@
+package searchengine.services;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import searchengine.config.CrawlSettings;
+import searchengine.crawl.RobotsTxt;
+import searchengine.crawl.SitemapEntry;
+import searchengine.crawl.SitemapParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Начальные адреса обхода сайта: правила robots.txt и все адреса его карт сайта (sitemap.xml,
+// индексы карт, сжатые карты). Карты читаются потоком, число карт и адресов ограничено настройками crawl
+@Service
+public class SitemapService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SitemapService.class);
+
+    private final CrawlSettings settings;
+
+    public SitemapService(CrawlSettings settings) {
+        this.settings = settings;
+    }
+
+    // Правила robots.txt и адреса страниц сайта из его карт (только разрешённые и внутри сайта)
+    public SiteSeed discover(String siteUrl) {
+        // robots.txt и карта по умолчанию лежат в корне хоста, даже если сайт задан с путём
+        String origin = origin(siteUrl);
+        RobotsTxt robots = fetchRobots(origin);
+        if (!settings.isSitemaps()) {
+            return new SiteSeed(robots, List.of());
+        }
+
+        Deque<String> pending = new ArrayDeque<>(robots.sitemaps().isEmpty()
+                ? List.of(origin + "/sitemap.xml")
+                : robots.sitemaps());
+        Set<String> seenSitemaps = new HashSet<>();
+        Set<String> seenUrls = new HashSet<>();
+        List<SitemapEntry> entries = new ArrayList<>();
+        int read = 0;
+        int maxUrls = settings.getMaxSitemapUrls();
+        while (!pending.isEmpty() && read < settings.getMaxSitemaps() && entries.size() < maxUrls) {
+            String sitemapUrl = pending.poll();
+            if (!seenSitemaps.add(sitemapUrl)) {
+                continue;
+            }
+            read++;
+            try {
+                Connection.Response response = connect(sitemapUrl).maxBodySize(0).execute();
+                if (response.statusCode() != 200) {
+                    logger.debug("Карта сайта {} недоступна: код {}", sitemapUrl, response.statusCode());
+                    continue;
+                }
+                try (InputStream body = response.bodyStream()) {
+                    SitemapParser.parse(body, entry -> {
+                        String url = entry.url();
+                        if (url.startsWith(siteUrl) && robots.allows(url) && seenUrls.add(url)) {
+                            entries.add(entry);
+                        }
+                        return entries.size() < maxUrls;
+                    }, pending::add);
+                }
+            } catch (IOException e) {
+                logger.warn("Не удалось прочитать карту сайта {}: {}", sitemapUrl, e.getMessage());
+            }
+        }
+        logger.info("Сайт {}: {} адресов из {} карт сайта", siteUrl, entries.size(), read);
+        return new SiteSeed(robots, entries);
+    }
+
+    // Нет файла или он недоступен — ограничений нет
+    private RobotsTxt fetchRobots(String origin) {
+        try {
+            Connection.Response response = connect(origin + "/robots.txt").execute();
+            if (response.statusCode() == 200) {
+                return RobotsTxt.parse(response.body());
+            }
+        } catch (IOException e) {
+            logger.debug("robots.txt сайта {} недоступен: {}", origin, e.getMessage());
+        }
+        return RobotsTxt.ALLOW_ALL;
+    }
+
+    // Схема, хост и порт адреса
+    private static String origin(String url) {
+        URI uri = URI.create(url);
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    private Connection connect(String url) {
+        return Jsoup.connect(url)
+                .userAgent(settings.getUserAgent())
+                .timeout(settings.getTimeoutMs())
+                .ignoreContentType(true)
+                .ignoreHttpErrors(true);
+    }
+
+    // Правила обхода сайта и адреса из его карт в порядке чтения
+    public record SiteSeed(RobotsTxt robots, List<SitemapEntry> entries) {
+    }
+}
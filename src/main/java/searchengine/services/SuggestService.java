@@ -0,0 +1,104 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import searchengine.search.SuggestionTrie;
+import searchengine.search.SymSpellIndex;
+import searchengine.search.SymSpellIndex.Correction;
+import searchengine.search.SuggestionTrie.Suggestion;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Подсказки по префиксу и исправление опечаток по словарю лемм в памяти; таблица lemma при вводе не читается
+@Service
+public class SuggestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestService.class);
+
+    // Вес леммы — её суммарная частота по всем сайтам
+    private static final String WEIGHTS_SQL = "SELECT lemma, SUM(frequency) FROM lemma GROUP BY lemma";
+
+    private static final int MAX_LIMIT = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SearchIndexService searchIndexService;
+    private final AtomicReference<SuggestionTrie> trie = new AtomicReference<>(SuggestionTrie.EMPTY);
+    private final AtomicReference<SymSpellIndex> spelling = new AtomicReference<>(SymSpellIndex.EMPTY);
+
+    // Поколение поискового индекса, по которому построено текущее дерево (-1 — ещё не строилось)
+    private volatile long builtGeneration = -1;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SuggestService(JdbcTemplate jdbcTemplate, SearchIndexService searchIndexService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchIndexService = searchIndexService;
+    }
+
+    // До limit лемм, начинающихся с последнего слова введённого текста, по убыванию частоты
+    public List<Suggestion> suggest(String text, int limit) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String[] words = text.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        return trie.get().complete(words[words.length - 1], Math.min(Math.max(limit, 1), MAX_LIMIT));
+    }
+
+    // Самая частая лемма словаря в пределах одной-двух правок или null, если лемма есть в словаре
+    // или похожих нет; короткие слова исправляются не больше чем на одну правку
+    public String correct(String lemma) {
+        if (lemma.length() < 3) {
+            return null;
+        }
+        SymSpellIndex index = spelling.get();
+        if (index.termCount() == 0 || index.contains(lemma)) {
+            return null;
+        }
+        int maxDistance = lemma.length() <= 4 ? 1 : SymSpellIndex.MAX_DISTANCE;
+        List<Correction> corrections = index.lookup(lemma, maxDistance);
+        return corrections.isEmpty() ? null : corrections.get(0).term();
+    }
+
+    // Словари перестраиваются в фоне после каждого обновления поискового индекса и заменяются целиком
+    @Scheduled(fixedDelayString = "${suggest.check-interval-ms:5000}")
+    public void checkGeneration() {
+        if (searchIndexService.getGeneration() != builtGeneration && rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.submit(this::rebuild);
+        }
+    }
+
+    private void rebuild() {
+        rebuildPending.set(false);
+        long generation = searchIndexService.getGeneration();
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Long> weights = new HashMap<>();
+            jdbcTemplate.query(WEIGHTS_SQL, (RowCallbackHandler) rs -> weights.put(rs.getString(1), rs.getLong(2)));
+            SuggestionTrie rebuilt = SuggestionTrie.build(weights);
+            SymSpellIndex rebuiltSpelling = SymSpellIndex.build(weights);
+            trie.set(rebuilt);
+            spelling.set(rebuiltSpelling);
+            builtGeneration = generation;
+            logger.info("Словари подсказок построены за {} мс: {} лемм, {} узлов дерева, {} удалений",
+                    System.currentTimeMillis() - start, rebuilt.termCount(), rebuilt.nodeCount(),
+                    rebuiltSpelling.deleteCount());
+        } catch (Exception e) {
+            logger.error("Ошибка при построении словарей подсказок", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package searchengine.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Обработка одной страницы обходчиком: длительность события — от запроса до записи в базу
+// (без вежливой задержки перед запросом), поля — время каждого этапа
+@Name("searchengine.PageIndexed")
+@Label("Page Indexed")
+@Category({"Search Engine", "Indexing"})
+@Description("Загрузка, разбор, лемматизация и запись одной страницы")
+@StackTrace(false)
+public class PageIndexedEvent extends Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Site")
+    public String site;
+
+    @Label("Status Code")
+    public int statusCode;
+
+    // indexed, skipped (редирект или код ошибки), duplicate (копия по rel=canonical) или failed (исключение)
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Fetch Time")
+    @Timespan
+    public long fetchTime;
+
+    @Label("Parse Time")
+    @Timespan
+    public long parseTime;
+
+    @Label("Lemmatization Time")
+    @Timespan
+    public long lemmatizationTime;
+
+    @Label("Persistence Time")
+    @Timespan
+    public long persistenceTime;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Lemma Count")
+    @Description("Различные леммы страницы")
+    public int lemmaCount;
+}
@@ -0,0 +1,56 @@
+package searchengine.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Один поисковый запрос: длительность события — весь SearchService.search, поля — разбор запроса,
+// отбор и ранжирование страниц, построение сниппетов
+@Name("searchengine.SearchQuery")
+@Label("Search Query")
+@Category({"Search Engine", "Search"})
+@Description("Разбор запроса, ранжирование и построение выдачи")
+@StackTrace(false)
+public class SearchQueryEvent extends Event {
+
+    @Label("Query")
+    public String query;
+
+    @Label("Site")
+    public String site;
+
+    @Label("Lemma Count")
+    public int lemmaCount;
+
+    // Шаги по кандидатам ведущего списка, которыми учитывается бюджет запроса
+    @Label("Candidate Steps")
+    public long postingsScanned;
+
+    @Label("Total Hits")
+    public int totalHits;
+
+    @Label("Results")
+    public int results;
+
+    @Label("Cache Hit")
+    public boolean cacheHit;
+
+    @Label("Partial")
+    public boolean partial;
+
+    @Label("Parse Time")
+    @Timespan
+    public long parseTime;
+
+    @Label("Scoring Time")
+    @Timespan
+    public long scoringTime;
+
+    @Label("Snippet Time")
+    @Timespan
+    public long snippetTime;
+}
@@ -1536,6 +1536,10 @@ var API = function(){
                         $content = $searchResults.find('.SearchResult-content');
                     if (data.offset === 0) {
                         $content.empty();
+                        if (result.didYouMean) {
+                            $content.append($('<div class="SearchResult-correction">')
+                                .text('Показаны результаты по запросу: ' + result.didYouMean));
+                        }
                     }
                     $searchResults.find('.SearchResult-amount').text(result.count);
                     var scroll = $(window).scrollTop();
@@ -1648,7 +1652,7 @@ var API = function(){
                             $this.removeClass('Tabs-block_update')
                         });
                     });
-                    if (result.statistics.total.isIndexing) {
+                    if (result.statistics.total.indexing) {
                         var $btnIndex = $('.btn[data-send="startIndexing"]'),
                             text = $btnIndex.find('.btn-content').text();
                         $btnIndex.find('.btn-content').text($btnIndex.data('alttext'));
@@ -1673,6 +1677,32 @@ var API = function(){
             }
         }
     };
+    // Ход индексации из потока /indexing/progress: по блоку на сайт
+    function renderProgress(progress){
+        var $progress = $('#indexingProgress').empty();
+        progress.sites.forEach(function(site){
+            var errors = Object.keys(site.errors).map(function(code){
+                return (code === '0' ? 'network' : code) + ' × ' + site.errors[code];
+            }).join(', ');
+            var $site = $('<div class="Statistics-progressSite">');
+            $site.append($('<strong class="Statistics-progressTitle">')
+                .text(site.name + ' - ' + site.url + (site.running ? ' (crawling)' : '')));
+            [
+                ['Pages fetched:', site.pagesFetched],
+                ['Pages/sec:', site.pagesPerSecond.toFixed(2)],
+                ['Backlog:', site.backlog + ' pages' + (site.backlogSeconds > 0
+                    ? ', ~' + Math.ceil(site.backlogSeconds / 60) + ' min at current rate' : '')],
+                ['Lemmatization:', site.lemmatizationMs.toFixed(1) + ' ms/page'],
+                ['Persistence:', site.persistenceMs.toFixed(1) + ' ms/page'],
+                ['Errors:', errors || '-']
+            ].forEach(function(option){
+                $site.append($('<div class="Statistics-option">')
+                    .append($('<strong>').text(option[0]))
+                    .append($('<span>').text(option[1])));
+            });
+            $progress.append($site);
+        });
+    }
     function shiftCheck($element, wave){
         var text = '',
             check = $element.data('check');
@@ -1730,6 +1760,33 @@ var API = function(){
                 send['statistics'].action,
                 $('.Statistics')
             )
+            if (window.EventSource) {
+                // Один общий поток на вкладку, сервер рассылает событие раз в секунду
+                var progressSource = new EventSource(backendApiUrl + '/indexing/progress');
+                progressSource.addEventListener('progress', function(event){
+                    renderProgress(JSON.parse(event.data));
+                });
+            }
+            var suggestTimer;
+            $('#query').on('input', function(){
+                var $query = $(this);
+                clearTimeout(suggestTimer);
+                suggestTimer = setTimeout(function(){
+                    var text = $query.val();
+                    if (!text.trim()) {
+                        $('#querySuggestions').empty();
+                        return;
+                    }
+                    $.getJSON(backendApiUrl + '/suggest', {query: text, limit: 10}, function(suggestions){
+                        // Подсказка заменяет последнее слово запроса
+                        var head = text.replace(/\S+$/, '');
+                        var $list = $('#querySuggestions').empty();
+                        suggestions.forEach(function(suggestion){
+                            $list.append($('<option>').attr('value', head + suggestion.text));
+                        });
+                    });
+                }, 150);
+            });
             var $send = $('[data-send]');
             $send.on('submit click', function(e){
                 var $this = $(this);
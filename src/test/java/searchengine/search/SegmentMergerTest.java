@@ -0,0 +1,77 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Слияние сегментов: удалённые страницы отбрасываются, остальные сохраняют ранги и позиции
+class SegmentMergerTest {
+
+    private static final int SITE_ID = 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mergeDropsDeletedPages() throws IOException {
+        Segment first = writeSegment(directory.resolve("segment-000001.seg"), 1, 150);
+        Segment second = writeSegment(directory.resolve("segment-000002.seg"), 151, 300);
+        BitSet deleted = new BitSet();
+        deleted.set(3);
+        deleted.set(150);
+        deleted.set(200);
+
+        Segment merged = SegmentMerger.merge(List.of(first, second), deleted,
+                directory.resolve("segment-000003.seg"));
+
+        assertEquals(1, merged.minPageId());
+        assertEquals(300, merged.maxPageId());
+        assertEquals(297, merged.pagesBySite().get(SITE_ID));
+        for (int pageId = 1; pageId <= 300; pageId++) {
+            assertEquals(deleted.get(pageId) ? 0 : SITE_ID, merged.siteOf(pageId));
+        }
+
+        PostingCursor cursor = merged.postings("общее").cursor();
+        assertEquals(297, cursor.size());
+        for (int pageId = 1; pageId <= 300; pageId++) {
+            if (deleted.get(pageId)) {
+                continue;
+            }
+            assertEquals(pageId, cursor.nextDoc());
+            assertEquals(pageId % 4 + 1, cursor.rank());
+            assertArrayEquals(new int[]{pageId % 9, pageId % 9 + 2}, cursor.positions());
+        }
+        assertEquals(PostingCursor.NO_MORE_DOCS, cursor.nextDoc());
+
+        // Лемма только удалённых страниц в слитый сегмент не попадает
+        assertNull(merged.postings("удалённое"));
+        assertNotNull(merged.postings("первый"));
+        assertNotNull(merged.postings("второй"));
+    }
+
+    private static Segment writeSegment(Path path, int minPageId, int maxPageId) throws IOException {
+        SegmentWriter writer = new SegmentWriter(path, minPageId, maxPageId);
+        PostingListBuilder common = new PostingListBuilder();
+        PostingListBuilder own = new PostingListBuilder();
+        for (int pageId = minPageId; pageId <= maxPageId; pageId++) {
+            writer.addPage(pageId, SITE_ID, 10);
+            common.add(pageId, pageId % 4 + 1, new int[]{pageId % 9, pageId % 9 + 2});
+            own.add(pageId, 1);
+        }
+        writer.addPostings("общее", common.build());
+        writer.addPostings(minPageId == 1 ? "первый" : "второй", own.build());
+        if (minPageId == 1) {
+            PostingListBuilder removed = new PostingListBuilder();
+            removed.add(3, 1);
+            removed.add(150, 2);
+            writer.addPostings("удалённое", removed.build());
+        }
+        return writer.write();
+    }
+}
@@ -0,0 +1,125 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Запись сегмента, отображение файла в память и чтение списков страниц и позиций обратно
+class SegmentRoundTripTest {
+
+    private static final int SITE_ID = 7;
+    // Больше двух блоков PostingList, последний неполный
+    private static final int PAGES = 2 * PostingList.BLOCK_SIZE + 44;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void postingsAndPositionsSurviveWriteAndMap() throws IOException {
+        Segment segment = Segment.open(writeSegment(directory.resolve("segment-000001.seg")).path());
+
+        assertEquals(1, segment.minPageId());
+        assertEquals(PAGES, segment.maxPageId());
+        assertEquals(2, segment.termCount());
+        assertEquals(PAGES + PAGES / 3, segment.postingCount());
+
+        PostingCursor cursor = segment.postings("слово").cursor();
+        assertEquals(PAGES, cursor.size());
+        for (int pageId = 1; pageId <= PAGES; pageId++) {
+            assertEquals(pageId, cursor.nextDoc());
+            assertEquals(rankOf(pageId), cursor.rank());
+            assertArrayEquals(positionsOf(pageId), cursor.positions());
+        }
+        assertEquals(PostingCursor.NO_MORE_DOCS, cursor.nextDoc());
+
+        PostingCursor sparse = segment.postings("word").cursor();
+        for (int pageId = 3; pageId <= PAGES; pageId += 3) {
+            assertEquals(pageId, sparse.nextDoc());
+        }
+        assertEquals(PostingCursor.NO_MORE_DOCS, sparse.nextDoc());
+
+        assertNull(segment.postings("нет"));
+        for (int pageId = 1; pageId <= PAGES; pageId++) {
+            assertEquals(SITE_ID, segment.siteOf(pageId));
+            assertEquals(pageId % 11 + 1, segment.pageLength(pageId));
+        }
+        assertEquals(0, segment.siteOf(PAGES + 1));
+        assertEquals(PAGES, segment.pagesBySite().get(SITE_ID));
+    }
+
+    @Test
+    void advanceCrossesBlockBoundaries() throws IOException {
+        Segment segment = writeSegment(directory.resolve("segment-000001.seg"));
+        int lastOfFirstBlock = PostingList.BLOCK_SIZE;
+
+        PostingCursor cursor = segment.postings("слово").cursor();
+        assertEquals(lastOfFirstBlock, cursor.advanceShallow(1));
+        assertEquals(lastOfFirstBlock, cursor.advance(lastOfFirstBlock));
+        assertArrayEquals(positionsOf(lastOfFirstBlock), cursor.positions());
+        assertEquals(lastOfFirstBlock + 1, cursor.nextDoc());
+        assertArrayEquals(positionsOf(lastOfFirstBlock + 1), cursor.positions());
+
+        // Пропуск целого блока без чтения его записей
+        assertEquals(PAGES, cursor.advanceShallow(2 * PostingList.BLOCK_SIZE + 1));
+        assertEquals(2 * PostingList.BLOCK_SIZE + 1, cursor.advance(2 * PostingList.BLOCK_SIZE + 1));
+        assertEquals(rankOf(2 * PostingList.BLOCK_SIZE + 1), cursor.rank());
+        assertArrayEquals(positionsOf(2 * PostingList.BLOCK_SIZE + 1), cursor.positions());
+        assertEquals(PAGES, cursor.advance(PAGES));
+        assertEquals(PostingCursor.NO_MORE_DOCS, cursor.advance(PAGES + 1));
+
+        // Позиции читаются и без вызова positions() для предыдущих записей блока
+        PostingCursor skipping = segment.postings("слово").cursor();
+        assertEquals(lastOfFirstBlock - 1, skipping.advance(lastOfFirstBlock - 1));
+        assertArrayEquals(positionsOf(lastOfFirstBlock - 1), skipping.positions());
+    }
+
+    @Test
+    void deletedPagesAreHiddenAfterReopen() throws IOException {
+        Segment segment = writeSegment(directory.resolve("segment-000001.seg"));
+        BitSet deleted = new BitSet();
+        deleted.set(5);
+        deleted.set(PostingList.BLOCK_SIZE + 1);
+        IndexManifest.writeDeletes(directory.resolve("deletes-000002.del"), deleted);
+        new IndexManifest(1, 3, List.of(segment.path().getFileName().toString()), "deletes-000002.del")
+                .write(directory);
+
+        SegmentedIndex index = SegmentedIndex.open(directory);
+        assertEquals(deleted, index.deleted());
+        assertEquals(0, index.siteOf(5));
+        assertEquals(0, index.siteOf(PostingList.BLOCK_SIZE + 1));
+        assertEquals(SITE_ID, index.siteOf(6));
+        assertEquals(PAGES - 2, index.pageCount(SITE_ID));
+        assertEquals(PAGES, index.maxPageId());
+    }
+
+    private static Segment writeSegment(Path path) throws IOException {
+        SegmentWriter writer = new SegmentWriter(path, 1, PAGES);
+        PostingListBuilder dense = new PostingListBuilder();
+        PostingListBuilder sparse = new PostingListBuilder();
+        for (int pageId = 1; pageId <= PAGES; pageId++) {
+            writer.addPage(pageId, SITE_ID, pageId % 11 + 1);
+            dense.add(pageId, rankOf(pageId), positionsOf(pageId));
+            if (pageId % 3 == 0) {
+                sparse.add(pageId, 1);
+            }
+        }
+        writer.addPostings("слово", dense.build());
+        writer.addPostings("word", sparse.build());
+        return writer.write();
+    }
+
+    private static int rankOf(int pageId) {
+        return pageId % 5 + 1;
+    }
+
+    private static int[] positionsOf(int pageId) {
+        int first = pageId % 7;
+        return pageId % 2 == 0 ? new int[]{first} : new int[]{first, first + 3, first + 40};
+    }
+}